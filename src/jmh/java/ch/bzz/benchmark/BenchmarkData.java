@@ -0,0 +1,81 @@
+package ch.bzz.benchmark;
+
+import ch.bzz.model.Book;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the books and files used by the benchmarks
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    /**
+     * @param count number of books
+     * @return books with ids 1..count and unique ISBNs
+     */
+    static List<Book> books(int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            books.add(new Book(i, String.format("978-3-%09d", i), "Benchmark Title " + i,
+                "Author " + (i % 1000), 1900 + i % 125));
+        }
+        return books;
+    }
+
+    /**
+     * Writes a TSV file in the format read by FileHandler
+     * @param count number of books
+     * @return path of the temporary file
+     * @throws IOException if the file cannot be written
+     */
+    static Path writeTsv(int count) throws IOException {
+        Path file = Files.createTempFile("books-benchmark", ".tsv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("id\tisbn\ttitle\tauthor\tpublication_year\n");
+            for (Book book : books(count)) {
+                writer.write(book.getId() + "\t" + book.getIsbn() + "\t" + book.getTitle() + "\t"
+                    + book.getAuthor() + "\t" + book.getPublicationYear() + "\n");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Points Database at a fresh SQLite file, must be called before the Database class is initialized
+     * @return temporary directory holding the config and the database file
+     * @throws IOException if the config cannot be written
+     */
+    static Path useTemporaryDatabase() throws IOException {
+        Path directory = Files.createTempDirectory("library-benchmark");
+        Path config = directory.resolve("config.properties");
+        try (Writer writer = Files.newBufferedWriter(config)) {
+            writer.write("jakarta.persistence.jdbc.url=jdbc:sqlite:" + directory.resolve("library.db") + "\n");
+            writer.write("jakarta.persistence.jdbc.user=\n");
+            writer.write("jakarta.persistence.jdbc.password=\n");
+        }
+        System.setProperty("library.config", config.toString());
+        return directory;
+    }
+
+    /**
+     * Deletes a directory created by useTemporaryDatabase
+     * @param directory the temporary directory
+     * @throws IOException if a file cannot be deleted
+     */
+    static void deleteTemporaryDatabase(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+}
@@ -0,0 +1,62 @@
+package ch.bzz.benchmark;
+
+import ch.bzz.Database;
+import ch.bzz.model.Book;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Write and read cost of the catalogue against a temporary SQLite database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DatabaseBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private Path directory;
+    private List<Book> books;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.useTemporaryDatabase();
+        books = BenchmarkData.books(rows);
+        Database.saveBooks(books);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Database.close();
+        BenchmarkData.deleteTemporaryDatabase(directory);
+    }
+
+    @Benchmark
+    public void saveBooks() {
+        Database.saveBooks(books);
+    }
+
+    @Benchmark
+    public List<Book> getAllBooksCached() {
+        return Database.getAllBooks();
+    }
+
+    /**
+     * Catalogue cache miss: the books are read from the database on a stateless session,
+     * which bypasses the second-level and query caches as well
+     */
+    @Benchmark
+    public List<Book> getAllBooksFromDatabase() {
+        Database.getBookCache().invalidate();
+        return Database.getAllBooks();
+    }
+
+    @Benchmark
+    public long streamBooks(Blackhole blackhole) {
+        return Database.streamBooks(0, blackhole::consume);
+    }
+}
@@ -0,0 +1,44 @@
+package ch.bzz.benchmark;
+
+import ch.bzz.FileHandler;
+import ch.bzz.model.Book;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the TSV parser on generated files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileHandlerBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws Exception {
+        file = BenchmarkData.writeTsv(rows);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<Book> readBooksFromTSV() {
+        return FileHandler.readBooksFromTSV(file.toString());
+    }
+
+    @Benchmark
+    public void streamBooksFromTSV(Blackhole blackhole) {
+        FileHandler.streamBooksFromTSV(file.toString(), FileHandler.DEFAULT_CHUNK_SIZE, blackhole::consume);
+    }
+}
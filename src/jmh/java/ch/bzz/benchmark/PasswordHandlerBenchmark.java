@@ -0,0 +1,40 @@
+package ch.bzz.benchmark;
+
+import ch.bzz.util.PasswordHandler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of salt generation and password hashing for each key-derivation cost
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PasswordHandlerBenchmark {
+
+    @Param({"1", "1000", "10000", "100000"})
+    public int iterations;
+
+    private byte[] salt;
+
+    @Setup
+    public void setUp() {
+        salt = PasswordHandler.generateSalt();
+    }
+
+    @Benchmark
+    public byte[] generateSalt() {
+        return PasswordHandler.generateSalt();
+    }
+
+    @Benchmark
+    public byte[] hashPassword() throws Exception {
+        return PasswordHandler.hashPassword("geheim123", salt, iterations);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] hashPasswordContended() throws Exception {
+        return PasswordHandler.hashPassword("geheim123", salt, iterations);
+    }
+}
@@ -0,0 +1,53 @@
+package ch.bzz.benchmark;
+
+import ch.bzz.ResponseFormat;
+import ch.bzz.model.Book;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Serialization CPU and payload size of /books for each response format, with and without gzip
+ * The payloadBytes counter in the results is the size of one encoded response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseFormatBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public ResponseFormat format;
+
+    @Param({"identity", "gzip"})
+    public String encoding;
+
+    private List<Book> books;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        public long payloadBytes;
+    }
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(rows);
+    }
+
+    @Benchmark
+    public byte[] encode(Payload payload) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(buffer) : buffer) {
+            format.getMapper().writeValue(out, books);
+        }
+        byte[] body = buffer.toByteArray();
+        payload.payloadBytes = body.length;
+        return body;
+    }
+}
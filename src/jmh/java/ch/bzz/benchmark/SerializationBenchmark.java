@@ -0,0 +1,32 @@
+package ch.bzz.benchmark;
+
+import ch.bzz.model.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Jackson serialization of the catalogue as returned by GET /books
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Book> books;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(rows);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws Exception {
+        return objectMapper.writeValueAsBytes(books);
+    }
+}
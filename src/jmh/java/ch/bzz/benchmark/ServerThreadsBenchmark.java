@@ -0,0 +1,56 @@
+package ch.bzz.benchmark;
+
+import ch.bzz.Database;
+import ch.bzz.JavalinMain;
+import io.javalin.Javalin;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput and tail latency of GET /books under many concurrent connections,
+ * with handlers on the platform thread pool versus on virtual threads
+ * The sample time mode reports the latency percentiles up to p99.99
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(400)
+public class ServerThreadsBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private Path directory;
+    private Javalin app;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.useTemporaryDatabase();
+        Database.saveBooks(BenchmarkData.books(10_000));
+
+        app = JavalinMain.createApp("virtual".equals(threads)).start(0);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        // Streaming bypasses the catalogue cache, so every request does real JDBC work
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + "/books?stream=true&limit=50"))
+            .GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        app.stop();
+        Database.close();
+        BenchmarkData.deleteTemporaryDatabase(directory);
+    }
+
+    @Benchmark
+    public int streamBooks() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+    }
+}
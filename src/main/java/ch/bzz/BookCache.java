@@ -0,0 +1,99 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for the book catalogue
+ * Entries are keyed by limit, evicted least recently used once maxRows is exceeded
+ * and dropped as a whole whenever a write bumps the version stamp
+ * Writes of another JVM, e.g. a CLI import, invalidate it once Database.getCatalogueVersion sees the persisted
+ * version move, at most cache.catalogueVersion.ttlMs later
+ */
+public class BookCache {
+    private final int maxRows;
+    private final Map<Integer, List<Book>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long version;
+    private int cachedRows;
+
+    /**
+     * Constructor for BookCache
+     * @param maxRows maximum number of books held over all entries
+     */
+    public BookCache(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Returns the cached books for a limit or loads and caches them
+     * @param limit maximum number of books, 0 or negative for no limit
+     * @param loader loads the books from the database on a miss
+     * @return unmodifiable list of books
+     */
+    public List<Book> get(int limit, Supplier<List<Book>> loader) {
+        int key = Math.max(limit, 0);
+        long loadVersion;
+        synchronized (this) {
+            List<Book> cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            loadVersion = version;
+        }
+
+        misses.incrementAndGet();
+        List<Book> books = Collections.unmodifiableList(loader.get());
+
+        synchronized (this) {
+            // A write during the load may have made the result stale, so only keep it if none happened
+            if (loadVersion == version && books.size() <= maxRows) {
+                List<Book> previous = entries.put(key, books);
+                cachedRows += books.size() - (previous != null ? previous.size() : 0);
+                evict();
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Drops all entries and bumps the version stamp, called after every write to the catalogue
+     */
+    public synchronized void invalidate() {
+        version++;
+        entries.clear();
+        cachedRows = 0;
+    }
+
+    private void evict() {
+        Iterator<List<Book>> iterator = entries.values().iterator();
+        while (cachedRows > maxRows && iterator.hasNext()) {
+            cachedRows -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized int getCachedRows() {
+        return cachedRows;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,99 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Base of the in-memory book indexes: loads all books on first use and applies the writes of this process
+ * Subclasses keep their structures under the lock, queries hold its read lock
+ */
+public abstract class BookIndex {
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object loadLock = new Object();
+    private boolean loaded;
+    /** Books written while the initial load runs, null outside of a load */
+    private List<Book> pending;
+
+    /**
+     * Builds the index on first use
+     * The loader runs without holding the index lock, as it waits for database permits that writers hold
+     * while they are about to update the index; writes applied during the load are replayed afterwards
+     * @param loader streams all books to the given consumer
+     */
+    public void ensureLoaded(Function<Consumer<Book>, Long> loader) {
+        lock.readLock().lock();
+        try {
+            if (loaded) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        synchronized (loadLock) {
+            lock.writeLock().lock();
+            try {
+                if (loaded) return;
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            List<Book> all = new ArrayList<>();
+            boolean complete = false;
+            try {
+                loader.apply(all::add);
+                complete = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (complete) {
+                        apply(all);
+                        apply(pending);
+                        loaded = true;
+                    }
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies written books to the index; ignored until a load has started, because the load reads
+     * the committed state anyway, and kept for replay while it is running
+     * @param changed books that were inserted or updated
+     */
+    public void update(Collection<Book> changed) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                apply(changed);
+            } else if (pending != null) {
+                pending.addAll(changed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Collection<Book> changed) {
+        for (Book book : changed) {
+            if (book.getId() != null) {
+                index(book);
+            }
+        }
+    }
+
+    /**
+     * Adds a book to the index, replacing the entry of a previous version with the same id
+     * Called with the write lock held
+     * @param book book with an id
+     */
+    protected abstract void index(Book book);
+}
@@ -0,0 +1,288 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ingests books from a request body: newline-delimited JSON objects or TSV lines in the importBooks format
+ * The body is parsed while it is read and each batch is written before the next one is read, so a fast
+ * client is slowed down to the speed of the database instead of filling the heap; lines longer than
+ * FileHandler.MAX_LINE_LENGTH are rejected without being buffered
+ */
+public class BookIngester {
+    private static final Logger log = LoggerFactory.getLogger(BookIngester.class);
+
+    /** Number of books written together */
+    static final int BATCH_SIZE = 1000;
+    /** Number of errors reported in detail, further rejected rows are only counted */
+    static final int MAX_ERRORS = 100;
+    private static final ObjectReader BOOK_READER = new ObjectMapper().readerFor(Book.class);
+
+    /**
+     * Ingests one JSON book per line into the database
+     * @param body request body
+     * @return number of inserted, updated and rejected rows and the ingest rate
+     * @throws IOException if reading the body fails
+     */
+    public static IngestSummary ingestNdjson(InputStream body) throws IOException {
+        return ingestNdjson(body, Database::saveBooksCountingUpdates);
+    }
+
+    /**
+     * Ingests one JSON book per line
+     * @param body request body
+     * @param writer writes one batch and returns how many of its books already existed
+     * @return number of inserted, updated and rejected rows and the ingest rate
+     * @throws IOException if reading the body fails
+     */
+    static IngestSummary ingestNdjson(InputStream body, ToIntFunction<List<Book>> writer) throws IOException {
+        IngestSummary summary = new IngestSummary();
+        LineReader lines = new LineReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        List<Long> batchLines = new ArrayList<>(BATCH_SIZE);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.next()) != null) {
+            lineNumber++;
+            if (lines.isTooLong()) {
+                summary.reject(lineNumber, "Line longer than " + FileHandler.MAX_LINE_LENGTH + " characters");
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            Book book;
+            try {
+                book = BOOK_READER.readValue(line);
+            } catch (JsonProcessingException e) {
+                summary.reject(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            String error = validate(book);
+            if (error != null) {
+                summary.reject(lineNumber, error);
+                continue;
+            }
+
+            batch.add(book);
+            batchLines.add(lineNumber);
+            if (batch.size() == BATCH_SIZE) {
+                write(batch, batchLines, writer, summary);
+                batch = new ArrayList<>(BATCH_SIZE);
+                batchLines = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, batchLines, writer, summary);
+        }
+        return summary.finish();
+    }
+
+    /**
+     * Ingests TSV lines (id, isbn, title, author, year) into the database
+     * @param body request body
+     * @return number of inserted, updated and rejected rows and the ingest rate
+     * @throws IOException if reading the body fails
+     */
+    public static IngestSummary ingestTsv(InputStream body) throws IOException {
+        return ingestTsv(body, Database::saveBooksCountingUpdates);
+    }
+
+    /**
+     * Ingests TSV lines with the streaming parser of FileHandler
+     * Invalid lines are only counted, their details are logged by the parser
+     * @param body request body
+     * @param writer writes one batch and returns how many of its books already existed
+     * @return number of inserted, updated and rejected rows and the ingest rate
+     * @throws IOException if reading the body fails
+     */
+    static IngestSummary ingestTsv(InputStream body, ToIntFunction<List<Book>> writer) throws IOException {
+        IngestSummary summary = new IngestSummary();
+        FileHandler.ParseResult result = FileHandler.parseBooks(Channels.newChannel(body), Long.MAX_VALUE, true,
+            BATCH_SIZE, batch -> write(batch, null, writer, summary));
+        summary.rejected += result.getRejected();
+        return summary.finish();
+    }
+
+    /**
+     * Checks the columns the books table requires
+     * @return error message or null if the book can be written
+     */
+    private static String validate(Book book) {
+        if (book.getIsbn() == null || book.getIsbn().isBlank() || book.getIsbn().length() > 20) {
+            return "isbn is required and may have at most 20 characters";
+        }
+        if (book.getTitle() == null || book.getTitle().isBlank() || book.getTitle().length() > 255) {
+            return "title is required and may have at most 255 characters";
+        }
+        if (book.getAuthor() == null || book.getAuthor().isBlank() || book.getAuthor().length() > 255) {
+            return "author is required and may have at most 255 characters";
+        }
+        return null;
+    }
+
+    /**
+     * Writes one batch; if its transaction fails, the rows are retried one by one
+     * so only the rows that fail on their own are rejected
+     * @param lines line number of each book, or null if they are not known
+     */
+    private static void write(List<Book> batch, List<Long> lines, ToIntFunction<List<Book>> writer, IngestSummary summary) {
+        try {
+            int updated = writer.applyAsInt(batch);
+            summary.updated += updated;
+            summary.inserted += batch.size() - updated;
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                summary.reject(lines != null ? lines.get(0) : 0, "Row failed: " + e.getMessage());
+                return;
+            }
+            log.warn("Batch of {} books failed, retrying them one by one: {}", batch.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                int updated = writer.applyAsInt(List.of(batch.get(i)));
+                summary.updated += updated;
+                summary.inserted += 1 - updated;
+            } catch (RuntimeException e) {
+                summary.reject(lines != null ? lines.get(i) : 0, "Row failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads lines like BufferedReader.readLine, but keeps at most FileHandler.MAX_LINE_LENGTH chars of a line
+     * The rest of a longer line is skipped, so a body without line breaks cannot fill the heap
+     */
+    private static final class LineReader {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next line
+         * @return the line without its line break, truncated if isTooLong, or null at the end of the input
+         * @throws IOException if reading fails
+         */
+        String next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(reader.read(buffer), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        return line.length() > 0 || tooLong ? finish() : null;
+                    }
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    return finish();
+                }
+            }
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        private void append(int from, int to) {
+            int room = FileHandler.MAX_LINE_LENGTH - line.length();
+            if (to - from > room) {
+                tooLong = true;
+                to = from + room;
+            }
+            line.append(buffer, from, to - from);
+        }
+
+        private String finish() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(length - 1);
+            }
+            return line.toString();
+        }
+    }
+
+    /**
+     * Outcome of an ingest: inserted, updated and rejected rows, the rate and up to MAX_ERRORS errors
+     * Errors of TSV rows carry line 0, the parser does not track line numbers
+     */
+    public static final class IngestSummary {
+        private final long start = System.nanoTime();
+        private long inserted;
+        private long updated;
+        private long rejected;
+        private long durationMs;
+        private long rowsPerSecond;
+        private final List<RowError> errors = new ArrayList<>();
+
+        private void reject(long lineNumber, String message) {
+            rejected++;
+            addError(lineNumber, message);
+        }
+
+        private void addError(long lineNumber, String message) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new RowError(lineNumber, message));
+            }
+        }
+
+        private IngestSummary finish() {
+            long nanos = Math.max(System.nanoTime() - start, 1);
+            durationMs = nanos / 1_000_000;
+            rowsPerSecond = Math.round((inserted + updated) / (nanos / 1_000_000_000.0));
+            return this;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public long getRowsPerSecond() {
+            return rowsPerSecond;
+        }
+
+        public List<RowError> getErrors() {
+            return errors;
+        }
+    }
+}
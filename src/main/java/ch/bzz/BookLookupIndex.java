@@ -0,0 +1,184 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+
+/**
+ * In-memory primary index for point lookups of books by id and by ISBN
+ * Both maps use open addressing with linear probing on flat arrays, so no boxing or entry objects are needed
+ * Like BookSearchIndex it only sees the writes of this process, books imported by another process
+ * are found after a restart
+ */
+public class BookLookupIndex extends BookIndex {
+    private final IdMap byId = new IdMap();
+    private final IsbnMap byIsbn = new IsbnMap();
+
+    /**
+     * @param id book id
+     * @return the book with this id or null
+     */
+    public Book findById(int id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param isbn ISBN of the book
+     * @return the book with this ISBN or null
+     */
+    public Book findByIsbn(String isbn) {
+        lock.readLock().lock();
+        try {
+            return byIsbn.get(isbn);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void index(Book book) {
+        Book previous = byId.put(book.getId(), book);
+        if (previous != null && previous.getIsbn() != null && !previous.getIsbn().equals(book.getIsbn())) {
+            byIsbn.remove(previous.getIsbn());
+        }
+        if (book.getIsbn() != null) {
+            byIsbn.put(book.getIsbn(), book);
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Open-addressing map from primitive int ids to books
+     */
+    private static final class IdMap {
+        private int[] keys = new int[16];
+        private Book[] values = new Book[16];
+        private int size;
+
+        Book get(int key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return null;
+        }
+
+        Book put(int key, Book value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            for (; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    Book previous = values[i];
+                    values[i] = value;
+                    return previous;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+            return null;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            Book[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Book[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Open-addressing map from ISBN strings to books, with backward-shift deletion
+     */
+    private static final class IsbnMap {
+        private String[] keys = new String[16];
+        private Book[] values = new Book[16];
+        private int size;
+
+        Book get(String key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key.hashCode()) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i].equals(key)) return values[i];
+            }
+            return null;
+        }
+
+        void put(String key, Book value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = mix(key.hashCode()) & mask;
+            for (; keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i].equals(key)) {
+                    values[i] = value;
+                    return;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void remove(String key) {
+            int mask = keys.length - 1;
+            int i = mix(key.hashCode()) & mask;
+            while (keys[i] != null && !keys[i].equals(key)) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == null) return;
+
+            // Shift following entries of the probe chain back so lookups never hit a gap
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+                int home = mix(keys[j].hashCode()) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = null;
+            values[gap] = null;
+            size--;
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            Book[] oldValues = values;
+            keys = new String[oldKeys.length * 2];
+            values = new Book[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
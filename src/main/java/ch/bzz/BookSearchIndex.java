@@ -0,0 +1,185 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * In-process inverted index over book titles and authors
+ * Built once from the database and updated incrementally on every write of this process;
+ * books written by another process, e.g. a CLI import, are only found after a restart
+ */
+public class BookSearchIndex extends BookIndex {
+    private static final int TITLE = 1;
+    private static final int AUTHOR = 2;
+
+    /** token -> (book id -> fields containing the token) */
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Book> books = new HashMap<>();
+
+    @Override
+    protected void index(Book book) {
+        remove(book.getId());
+        add(book);
+    }
+
+    /**
+     * Finds books whose title or author contain all query terms, the last term also as prefix
+     * Every indexed term starting with the prefix is matched, so the total is exact even for short prefixes;
+     * title matches rank above author matches, rare terms above common ones
+     * @param query search text
+     * @param offset number of results to skip
+     * @param limit maximum number of results to return
+     * @return total number of matches and the requested page of books
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new SearchResult(0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = Map.of();
+            for (int i = 0; i < terms.size(); i++) {
+                Map<Integer, Double> termScores = scoreTerm(terms.get(i), i == terms.size() - 1);
+                if (i == 0) {
+                    scores = termScores;
+                } else {
+                    // Keep only books matching every term
+                    Map<Integer, Double> merged = new HashMap<>();
+                    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                        Double score = termScores.get(entry.getKey());
+                        if (score != null) {
+                            merged.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) break;
+            }
+
+            // Keep only the best offset + limit matches instead of sorting all of them
+            Comparator<Map.Entry<Integer, Double>> order = Map.Entry.<Integer, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+            int wanted = Math.max(offset, 0) + limit;
+            PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(order.reversed());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                top.add(entry);
+                if (top.size() > wanted) {
+                    top.poll();
+                }
+            }
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(order);
+
+            List<Book> page = new ArrayList<>();
+            for (int i = Math.max(offset, 0); i < ranked.size(); i++) {
+                page.add(books.get(ranked.get(i).getKey()));
+            }
+            return new SearchResult(scores.size(), page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Integer, Double> scoreTerm(String term, boolean prefix) {
+        Map<Integer, Double> scores = new HashMap<>();
+        Collection<Map.Entry<String, Map<Integer, Integer>>> matches;
+        if (prefix) {
+            matches = postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet();
+        } else {
+            Map<Integer, Integer> exact = postings.get(term);
+            matches = exact == null ? List.of() : List.of(Map.entry(term, exact));
+        }
+
+        for (Map.Entry<String, Map<Integer, Integer>> match : matches) {
+            double idf = Math.log(1.0 + (double) books.size() / match.getValue().size());
+            // Exact hits count fully, prefix completions half
+            double weight = match.getKey().equals(term) ? idf : idf / 2;
+            for (Map.Entry<Integer, Integer> posting : match.getValue().entrySet()) {
+                int fields = posting.getValue();
+                double score = weight * (((fields & TITLE) != 0 ? 2 : 0) + ((fields & AUTHOR) != 0 ? 1 : 0));
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void add(Book book) {
+        books.put(book.getId(), book);
+        addTokens(book.getId(), book.getTitle(), TITLE);
+        addTokens(book.getId(), book.getAuthor(), AUTHOR);
+    }
+
+    private void addTokens(int id, String text, int field) {
+        for (String token : tokenize(text)) {
+            postings.computeIfAbsent(token, t -> new HashMap<>(4)).merge(id, field, (a, b) -> a | b);
+        }
+    }
+
+    private void remove(int id) {
+        Book previous = books.remove(id);
+        if (previous == null) return;
+        List<String> tokens = tokenize(previous.getTitle());
+        tokens.addAll(tokenize(previous.getAuthor()));
+        for (String token : tokens) {
+            Map<Integer, Integer> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits text into lower-case tokens without diacritics
+     * @param text text to split, may be null
+     * @return list of tokens in text order
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Total number of matches and one page of ranked books
+     */
+    public static final class SearchResult {
+        private final int total;
+        private final List<Book> books;
+
+        public SearchResult(int total, List<Book> books) {
+            this.total = total;
+            this.books = books;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Book> getBooks() {
+            return books;
+        }
+    }
+}
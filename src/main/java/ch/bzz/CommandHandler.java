@@ -1,8 +1,12 @@
 package ch.bzz;
 
 import ch.bzz.model.Book;
+import ch.bzz.model.BookTitle;
 import ch.bzz.model.User;
 import ch.bzz.util.PasswordHandler;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -45,8 +49,11 @@ public class CommandHandler {
         log.info("  help - Zeigt diese Hilfe an");
         log.info("  listBooks [limit] - Zeigt alle Bücher aus der Datenbank an (optional mit Limit)");
         log.info("  list - Zeigt alle Bücher mit Details an");
-        log.info("  importBooks <FILE_PATH> - Importiert Bücher aus einer TSV-Datei");
+        log.info("  importBooks <FILE_PATH> - Importiert Bücher aus einer TSV-Datei, einem Verzeichnis oder einem Glob-Muster");
+        log.info("  importBooks --delta <FILE_PATH> - Schreibt nur neue oder geänderte Bücher, setzt abgebrochene Importe fort");
+        log.info("  exportBooks <FILE_PATH> - Exportiert alle Bücher als TSV-Datei im Format von importBooks");
         log.info("  createUser <firstname> <lastname> <dateOfBirth> <email> <password> - Erstellt einen neuen Benutzer");
+        log.info("  importUsers <FILE_PATH> - Importiert Benutzer aus einer TSV-Datei (Vorname, Nachname, Geburtsdatum, E-Mail, Passwort)");
         log.info("  quit - Beendet das Programm");
     }
 
@@ -59,25 +66,26 @@ public class CommandHandler {
 
     /**
      * Lists book titles from the database with optional limit
+     * Only id and title are read, no Book entities are loaded
      * @param limitStr optional limit as string, null for no limit
      */
     public void listBooks(String limitStr) {
-        List<Book> books;
+        List<BookTitle> books;
         if (limitStr != null && !limitStr.trim().isEmpty()) {
             try {
                 int limit = Integer.parseInt(limitStr.trim());
                 if (limit <= 0) {
                     log.warn("Limit muss eine positive Zahl sein. Zeige alle Bücher an.");
-                    books = Database.getAllBooks();
+                    books = Database.getBookTitles(0);
                 } else {
-                    books = Database.getAllBooks(limit);
+                    books = Database.getBookTitles(limit);
                 }
             } catch (NumberFormatException e) {
-                log.warn("Ungültiger Limit-Wert: '" + limitStr + "'. Zeige alle Bücher an.", e);
-                books = Database.getAllBooks();
+                log.warn("Ungültiger Limit-Wert: '{}'. Zeige alle Bücher an.", limitStr, e);
+                books = Database.getBookTitles(0);
             }
         } else {
-            books = Database.getAllBooks();
+            books = Database.getBookTitles(0);
         }
         
         if (books.isEmpty()) {
@@ -85,8 +93,8 @@ public class CommandHandler {
             return;
         }
 
-        for (Book book : books) {
-            log.info(book.getTitle());
+        for (BookTitle book : books) {
+            log.info("{}", book.getTitle());
         }
     }
 
@@ -99,27 +107,100 @@ public class CommandHandler {
             log.info("Keine Bücher in der Datenbank gefunden.");
         } else {
             for (Book book : books) {
-                log.info(String.format("%d | %s | %s | %s | %d", 
-                    book.getId(), book.getIsbn(), book.getTitle(), 
-                    book.getAuthor(), book.getPublicationYear()));
+                log.info("{} | {} | {} | {} | {}", book.getId(), book.getIsbn(), book.getTitle(),
+                    book.getAuthor(), book.getPublicationYear());
             }
         }
     }
 
     /**
      * Handles the importBooks command
-     * @param filePath path to the TSV file
+     * Accepts a single file, a directory or a glob pattern; the files are parsed in parallel
+     * With the --delta option the files are imported one after the other, writing only changed rows
+     * @param filePath path to the TSV file, a directory or a glob pattern, optionally preceded by --delta
      */
     public void importBooks(String filePath) {
+        if (filePath.startsWith("--delta")) {
+            importBooksDelta(filePath.substring("--delta".length()).trim());
+            return;
+        }
         if (filePath.isEmpty()) {
             log.warn("Bitte geben Sie einen Dateipfad an: importBooks <FILE_PATH>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<ParallelImporter.FileSummary> summaries = ParallelImporter.importBooks(filePath.trim());
+        long accepted = 0;
+        long written = 0;
+        long writeFailed = 0;
+        for (ParallelImporter.FileSummary summary : summaries) {
+            accepted += summary.getAccepted();
+            written += summary.getWritten();
+            writeFailed += summary.getWriteFailed();
+            log.info("{}: {} Bücher gelesen, {} geschrieben, {} nicht geschrieben, {} Zeilen übersprungen{}.",
+                summary.getFile(), summary.getAccepted(), summary.getWritten(), summary.getWriteFailed(),
+                summary.getRejected(), summary.isFailed() ? " (Fehler beim Lesen)" : "");
+        }
+
+        if (writeFailed > 0) {
+            log.error("{} Bücher aus {} Datei(en) importiert, {} konnten nicht geschrieben werden ({} ms).",
+                written, summaries.size(), writeFailed, (System.nanoTime() - start) / 1_000_000);
+        } else if (accepted > 0) {
+            log.info("{} Bücher aus {} Datei(en) importiert in {} ms.", written, summaries.size(),
+                (System.nanoTime() - start) / 1_000_000);
         } else {
-            List<Book> books = FileHandler.readBooksFromTSV(filePath);
-            if (!books.isEmpty()) {
-                Database.saveBooks(books);
-            } else {
-                log.warn("Keine Bücher aus der Datei gelesen. Überprüfen Sie den Dateipfad und das Dateiformat.");
+            log.warn("Keine Bücher aus der Datei gelesen. Überprüfen Sie den Dateipfad und das Dateiformat.");
+        }
+    }
+
+    /**
+     * Handles the importBooks --delta command
+     * Every file keeps a checkpoint while it is imported, so running the command again resumes it
+     * @param filePath path to the TSV file, a directory or a glob pattern
+     */
+    private void importBooksDelta(String filePath) {
+        if (filePath.isEmpty()) {
+            log.warn("Bitte geben Sie einen Dateipfad an: importBooks --delta <FILE_PATH>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            for (Path file : ParallelImporter.resolveFiles(filePath)) {
+                DeltaImporter.DeltaSummary summary = DeltaImporter.importBooks(file);
+                log.info("{}: {} Bücher neu oder geändert, {} unverändert, {} Zeilen übersprungen.", file,
+                    summary.getWritten(), summary.getUnchanged(), summary.getRejected());
             }
+            log.info("Delta-Import abgeschlossen in {} ms.", (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | InvalidPathException e) {
+            log.error("Fehler beim Lesen der Datei: {}", e.getMessage(), e);
+        } catch (RuntimeException e) {
+            log.error("Delta-Import abgebrochen, er kann mit demselben Befehl fortgesetzt werden: {}",
+                e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Handles the exportBooks command
+     * @param filePath path of the TSV file to create or overwrite
+     */
+    public void exportBooks(String filePath) {
+        if (filePath.isEmpty()) {
+            log.warn("Bitte geben Sie einen Dateipfad an: exportBooks <FILE_PATH>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            long count = Database.exportBooksToTSV(filePath.trim());
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+            log.info("{} Bücher nach {} exportiert ({} Zeilen/s).", count, filePath.trim(),
+                Math.round(count / seconds));
+        } catch (IOException e) {
+            log.error("Fehler beim Schreiben der Datei: {}", e.getMessage(), e);
+        } catch (RuntimeException e) {
+            log.error("Fehler beim Exportieren der Bücher: {}", e.getMessage(), e);
         }
     }
 
@@ -150,13 +231,12 @@ public class CommandHandler {
             // Parse date of birth
             LocalDate dateOfBirth = LocalDate.parse(dateOfBirthStr, DateTimeFormatter.ISO_LOCAL_DATE);
 
-            // Generate salt and hash password
+            // Generate salt and hash password, the hash records its number of rounds
             byte[] salt = PasswordHandler.generateSalt();
-            byte[] hash = PasswordHandler.hashPassword(password, salt);
+            String hash = PasswordHandler.hashForStorage(password, salt);
 
-            // Encode salt and hash to Base64
+            // Encode salt to Base64
             String saltBase64 = Base64.getEncoder().encodeToString(salt);
-            String hashBase64 = Base64.getEncoder().encodeToString(hash);
 
             // Create user object
             User user = new User();
@@ -165,18 +245,44 @@ public class CommandHandler {
             user.setDateOfBirth(dateOfBirth);
             user.setEmail(email);
             user.setPasswordSalt(saltBase64);
-            user.setPasswordHash(hashBase64);
+            user.setPasswordHash(hash);
 
             // Save user to database
             Database.saveUser(user);
-            log.info("Benutzer erfolgreich erstellt: " + firstname + " " + lastname + " (" + email + ")");
+            log.info("Benutzer erfolgreich erstellt: {} {} ({})", firstname, lastname, email);
 
         } catch (DateTimeParseException e) {
             log.warn("Ungültiges Datumsformat. Verwenden Sie das Format YYYY-MM-DD (z.B. 1990-05-21)");
         } catch (NoSuchAlgorithmException e) {
-            log.error("Fehler beim Hashen des Passworts: " + e.getMessage(), e);
+            log.error("Fehler beim Hashen des Passworts: {}", e.getMessage(), e);
+        } catch (Exception e) {
+            log.error("Fehler beim Erstellen des Benutzers: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Handles the importUsers command
+     * Passwords are hashed in parallel, per-line errors are reported without aborting the import
+     * @param filePath path to the TSV file
+     */
+    public void importUsers(String filePath) {
+        if (filePath.isEmpty()) {
+            log.warn("Bitte geben Sie einen Dateipfad an: importUsers <FILE_PATH>");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            UserImporter.ImportSummary summary = UserImporter.importUsers(filePath.trim());
+            for (RowError error : summary.getErrors()) {
+                log.warn("Zeile {} übersprungen: {}", error.getLine(), error.getMessage());
+            }
+            log.info("{} Benutzer importiert, {} Zeilen übersprungen in {} ms.", summary.getInserted(),
+                summary.getRejected(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Fehler beim Lesen der Datei: {}", e.getMessage(), e);
         } catch (Exception e) {
-            log.error("Fehler beim Erstellen des Benutzers: " + e.getMessage(), e);
+            log.error("Fehler beim Importieren der Benutzer: {}", e.getMessage(), e);
         }
     }
 
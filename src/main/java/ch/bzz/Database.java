@@ -1,13 +1,40 @@
 package ch.bzz;
 
 import ch.bzz.model.Book;
+import ch.bzz.model.BookFingerprint;
+import ch.bzz.model.BookTitle;
+import ch.bzz.model.CatalogueVersion;
 import ch.bzz.model.User;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import jakarta.persistence.Tuple;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import com.typesafe.config.ConfigFactory;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.Statistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,52 +45,331 @@ import org.slf4j.LoggerFactory;
 public class Database {
     private static final Logger log = LoggerFactory.getLogger(Database.class);
     private static final Properties config = loadDatabaseConfig();
-    private static final EntityManagerFactory emf = createEntityManagerFactory();
+    private static final int batchSize = Integer.parseInt(config.getProperty("db.batch.size", "500"));
+    private static final int fetchSize = Integer.parseInt(config.getProperty("db.fetch.size", "500"));
+    private static final PoolMetrics poolMetrics = new PoolMetrics();
+    private static final SlowQueryLog slowQueryLog =
+        new SlowQueryLog(Long.parseLong(config.getProperty("db.slowQuery.thresholdMs", "500")));
+    private static final Metrics metrics =
+        new Metrics("library_db_operation_seconds", "Duration of Database operations", "operation")
+            .reportSlowerThan(slowQueryLog.getThresholdNanos(), slowQueryLog::logCall);
+    // -Dlibrary.profile=fast-start validates the schema instead of updating it
+    private static final boolean fastStart = "fast-start".equals(System.getProperty("library.profile"));
+    private static final Semaphore permits = new Semaphore(Integer.parseInt(
+        config.getProperty("db.maxInFlight", config.getProperty("db.pool.maxSize", "10"))), true);
+    private static CompletableFuture<EntityManagerFactory> bootstrap;
+    private static volatile HikariDataSource dataSource;
+    private static volatile ReplicaRouter router;
+    private static volatile EntityManagerFactory emf;
+    private static final BookCache bookCache =
+        new BookCache(Integer.parseInt(config.getProperty("cache.books.maxRows", "100000")));
+    private static final long catalogueVersionTtlNanos =
+        Long.parseLong(config.getProperty("cache.catalogueVersion.ttlMs", "1000")) * 1_000_000;
+    private static final Object catalogueVersionLock = new Object();
+    private static volatile long catalogueVersion = -1;
+    private static volatile long catalogueVersionReadAt;
+    private static final BookSearchIndex searchIndex = new BookSearchIndex();
+    private static final BookLookupIndex lookupIndex = new BookLookupIndex();
+
+    /** Book attributes that can be selected with streamBookFields */
+    public static final List<String> BOOK_FIELDS = List.of("id", "isbn", "title", "author", "publicationYear");
+
+    private static final String UPSERT_BOOK_SQL =
+        "INSERT INTO books (id, isbn, title, author, publication_year) VALUES (?, ?, ?, ?, ?) "
+        + "ON CONFLICT (id) DO UPDATE SET isbn = excluded.isbn, title = excluded.title, "
+        + "author = excluded.author, publication_year = excluded.publication_year";
+
+    private static final String UPSERT_FINGERPRINT_SQL =
+        "INSERT INTO book_fingerprints (book_id, fingerprint) VALUES (?, ?) "
+        + "ON CONFLICT (book_id) DO UPDATE SET fingerprint = excluded.fingerprint";
+
+    private static final String BUMP_CATALOGUE_VERSION_SQL =
+        "INSERT INTO catalogue_version (id, version) VALUES (?, ?) "
+        + "ON CONFLICT (id) DO UPDATE SET version = catalogue_version.version + 1";
+    /** Number of ids per IN lookup, well below the bind parameter limits of SQLite and PostgreSQL */
+    private static final int ID_LOOKUP_SIZE = 1000;
+    /**
+     * Largest page kept in the query cache; a hit resolves every id through the "books" entity region,
+     * so a page must fit into that region many times over or the hit turns into one SELECT per evicted row
+     */
+    private static final int MAX_CACHED_PAGE_SIZE = 1000;
 
     /**
      * Loads database configuration from config.properties file
+     * The file location can be overridden with the library.config system property
      * @return Properties object containing database configuration
      */
     private static Properties loadDatabaseConfig() {
         Properties properties = new Properties();
-        try (FileInputStream input = new FileInputStream("config.properties")) {
+        try (FileInputStream input = new FileInputStream(System.getProperty("library.config", "config.properties"))) {
             properties.load(input);
         } catch (IOException e) {
-            log.error("Error loading config.properties: " + e.getMessage(), e);
+            log.error("Error loading config.properties: {}", e.getMessage(), e);
             log.error("Make sure config.properties exists in the root directory.");
             System.exit(1);
         }
         return properties;
     }
 
+    /**
+     * Reads a setting from config.properties, for tunables of classes outside the persistence layer
+     * @param key property name
+     * @param defaultValue value used if the property is not set
+     * @return configured or default value
+     */
+    public static String getSetting(String key, String defaultValue) {
+        return config.getProperty(key, defaultValue);
+    }
+
+    /**
+     * Creates the HikariCP connection pool of the primary database with configuration from config.properties
+     * @return HikariDataSource used for all writes, and for reads when no replica is available
+     */
+    private static HikariDataSource createDataSource() {
+        HikariConfig hikariConfig = createPoolConfig("library-pool", primaryUrl(), primaryUser(), primaryPassword());
+        hikariConfig.setMetricsTrackerFactory(poolMetrics);
+        return new HikariDataSource(hikariConfig);
+    }
+
+    /**
+     * Creates one pool per replica URL listed in db.replica.urls
+     * Replica pools start without a connection, so an unreachable replica does not fail the startup;
+     * the health checks of ReplicaRouter take it out of rotation instead
+     * @return replica pools, empty if no replicas are configured
+     */
+    private static List<HikariDataSource> createReplicaDataSources() {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        String urls = config.getProperty("db.replica.urls", "").trim();
+        if (urls.isEmpty()) {
+            return replicas;
+        }
+        for (String url : urls.split(",")) {
+            HikariConfig hikariConfig = createPoolConfig("library-replica-" + (replicas.size() + 1), url.trim(),
+                config.getProperty("db.replica.user", primaryUser()),
+                config.getProperty("db.replica.password", primaryPassword()));
+            hikariConfig.setInitializationFailTimeout(-1);
+            hikariConfig.setConnectionTimeout(Long.parseLong(config.getProperty("db.replica.connectionTimeoutMs", "2000")));
+            replicas.add(new HikariDataSource(hikariConfig));
+        }
+        log.info("Reading from {} replica(s), writing to the primary", replicas.size());
+        return replicas;
+    }
+
+    private static String primaryUrl() {
+        return config.getProperty("jakarta.persistence.jdbc.url", config.getProperty("DB_URL"));
+    }
+
+    private static String primaryUser() {
+        return config.getProperty("jakarta.persistence.jdbc.user", config.getProperty("DB_USER"));
+    }
+
+    private static String primaryPassword() {
+        return config.getProperty("jakarta.persistence.jdbc.password", config.getProperty("DB_PASSWORD"));
+    }
+
+    /**
+     * Creates the HikariCP settings shared by the primary and the replica pools
+     * @param poolName name of the pool, shown in logs and JMX
+     * @param dbUrl JDBC URL of the database
+     * @param dbUser database user
+     * @param dbPassword database password
+     * @return HikariConfig with the pool limits from config.properties
+     */
+    private static HikariConfig createPoolConfig(String poolName, String dbUrl, String dbUser, String dbPassword) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName(poolName);
+        hikariConfig.setJdbcUrl(dbUrl);
+        hikariConfig.setUsername(dbUser);
+        hikariConfig.setPassword(dbPassword);
+        hikariConfig.setAutoCommit(false);
+        hikariConfig.setMaximumPoolSize(Integer.parseInt(config.getProperty("db.pool.maxSize", "10")));
+        hikariConfig.setMinimumIdle(Integer.parseInt(config.getProperty("db.pool.minIdle", "2")));
+        hikariConfig.setConnectionTimeout(Long.parseLong(config.getProperty("db.pool.connectionTimeoutMs", "30000")));
+        hikariConfig.setIdleTimeout(Long.parseLong(config.getProperty("db.pool.idleTimeoutMs", "600000")));
+        hikariConfig.setMaxLifetime(Long.parseLong(config.getProperty("db.pool.maxLifetimeMs", "1800000")));
+
+        // Server-side prepared statement cache, only the PostgreSQL driver supports it
+        String statementCacheSize = config.getProperty("db.pool.statementCacheSize", "256");
+        if (dbUrl != null && dbUrl.startsWith("jdbc:postgresql:")) {
+            hikariConfig.addDataSourceProperty("preparedStatementCacheQueries", statementCacheSize);
+        }
+        return hikariConfig;
+    }
+
+    /**
+     * Waits until fewer than db.maxInFlight operations are using the database
+     * With virtual threads there is no thread pool limiting concurrency any more, so this keeps
+     * callers queued in order instead of piling up on the connection pool until it times out
+     * @return Permit to close when the database work is done
+     */
+    private static Permit acquirePermit() {
+        permits.acquireUninterruptibly();
+        return permits::release;
+    }
+
+    /**
+     * Slot for one in-flight database operation, released on close
+     */
+    private interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Starts building the connection pool and the EntityManagerFactory on a background thread
+     * Called at startup so the metadata is built while the server binds its port or the prompt is shown;
+     * without it the first database access builds them. Calling it again has no effect
+     */
+    public static synchronized void startBootstrap() {
+        if (bootstrap == null) {
+            long start = System.nanoTime();
+            bootstrap = CompletableFuture.supplyAsync(Database::createEntityManagerFactory, runnable -> {
+                Thread thread = new Thread(runnable, "database-bootstrap");
+                thread.setDaemon(true);
+                thread.start();
+            });
+            bootstrap.whenComplete((factory, e) -> {
+                if (e != null) {
+                    log.error("Persistence bootstrap failed: {}", e.getMessage(), e);
+                } else {
+                    log.info("Persistence bootstrap finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets the EntityManagerFactory, waiting for the bootstrap if it is still running
+     * @return EntityManagerFactory instance
+     */
+    private static EntityManagerFactory emf() {
+        EntityManagerFactory factory = emf;
+        if (factory != null) {
+            return factory;
+        }
+        startBootstrap();
+        try {
+            emf = bootstrap.join();
+            return emf;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
      * Creates EntityManagerFactory with configuration from config.properties
      * @return EntityManagerFactory configured for the application
      */
     private static EntityManagerFactory createEntityManagerFactory() {
+        dataSource = createDataSource();
+        router = new ReplicaRouter(dataSource, createReplicaDataSources(), slowQueryLog,
+            config.getProperty("db.replica.healthCheckQuery", "SELECT 1 FROM books WHERE 1 = 0"),
+            Long.parseLong(config.getProperty("db.replica.healthCheckIntervalMs", "5000")));
         Properties jpaProperties = new Properties();
+        jpaProperties.put("jakarta.persistence.nonJtaDataSource", router);
+        jpaProperties.setProperty("hibernate.connection.provider_disables_autocommit", "true");
+
+        // Let Hibernate group inserts/updates of the JPA fallback path into JDBC batches
+        jpaProperties.setProperty("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+        jpaProperties.setProperty("hibernate.order_inserts", "true");
+        jpaProperties.setProperty("hibernate.order_updates", "true");
+
+        // Diffing the schema on every start is slow; the fast-start profile only checks it
+        jpaProperties.setProperty("hibernate.hbm2ddl.auto",
+            config.getProperty("db.schema.action", fastStart ? "validate" : "update"));
+
+        configureSecondLevelCache();
         
-        // Map config.properties to JPA properties
-        String dbUrl = config.getProperty("DB_URL");
-        String dbUser = config.getProperty("DB_USER");
-        String dbPassword = config.getProperty("DB_PASSWORD");
-        
-        // Also check for JPA-style properties
-        if (config.getProperty("jakarta.persistence.jdbc.url") != null) {
-            dbUrl = config.getProperty("jakarta.persistence.jdbc.url");
-        }
-        if (config.getProperty("jakarta.persistence.jdbc.user") != null) {
-            dbUser = config.getProperty("jakarta.persistence.jdbc.user");
-        }
-        if (config.getProperty("jakarta.persistence.jdbc.password") != null) {
-            dbPassword = config.getProperty("jakarta.persistence.jdbc.password");
+        EntityManagerFactory factory = Persistence.createEntityManagerFactory("localPU", jpaProperties);
+        seedCatalogueVersion(factory);
+        return factory;
+    }
+
+    /**
+     * Creates the catalogue version row once, before any write can bump it
+     * The row starts at the current time, so a recreated database does not repeat versions of the old one.
+     * Two processes starting at once may both try to insert it; the loser's insert fails and is ignored
+     * @param factory freshly created EntityManagerFactory
+     */
+    private static void seedCatalogueVersion(EntityManagerFactory factory) {
+        try (EntityManager em = factory.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                if (em.find(CatalogueVersion.class, CatalogueVersion.ID) == null) {
+                    em.persist(new CatalogueVersion(System.currentTimeMillis()));
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                log.debug("Catalogue version was seeded by another process: {}", e.getMessage());
+            }
         }
-        
-        jpaProperties.setProperty("jakarta.persistence.jdbc.url", dbUrl);
-        jpaProperties.setProperty("jakarta.persistence.jdbc.user", dbUser);
-        jpaProperties.setProperty("jakarta.persistence.jdbc.password", dbPassword);
-        
-        return Persistence.createEntityManagerFactory("localPU", jpaProperties);
+    }
+
+    /**
+     * Passes the second-level cache limits from config.properties on to the Caffeine JCache provider
+     * Caffeine reads its configuration from application.conf, which system properties override
+     */
+    private static void configureSecondLevelCache() {
+        Map<String, String> settings = Map.of(
+            "cache.l2.books.maxSize", "caffeine.jcache.books.policy.maximum.size",
+            "cache.l2.books.ttl", "caffeine.jcache.books.policy.eager-expiration.after-write",
+            "cache.l2.queries.maxSize", "caffeine.jcache.default-query-results-region.policy.maximum.size",
+            "cache.l2.queries.ttl", "caffeine.jcache.default-query-results-region.policy.eager-expiration.after-write");
+        settings.forEach((key, cacheKey) -> {
+            String value = config.getProperty(key);
+            if (value != null) {
+                System.setProperty(cacheKey, value);
+            }
+        });
+        ConfigFactory.invalidateCaches();
+    }
+
+    /**
+     * Gets the acquire latency and timeout counters of the connection pool
+     * @return PoolMetrics of the HikariCP pool
+     */
+    public static PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
+    /**
+     * Gets the timers of the Database operations
+     * @return Metrics with one histogram per operation
+     */
+    public static Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the live state of the connection pool (active, idle and pending connections)
+     * @return HikariPoolMXBean of the HikariCP pool
+     */
+    public static HikariPoolMXBean getPool() {
+        emf();
+        return dataSource.getHikariPoolMXBean();
+    }
+
+    /**
+     * Gets the health and connection counts of the read replicas
+     * @return one entry per replica, empty if none are configured
+     */
+    public static List<Map<String, Object>> getReplicaStatus() {
+        emf();
+        return router.getReplicaStatus();
+    }
+
+    /**
+     * Gets the Hibernate statistics, including second-level and query cache counters
+     * @return Statistics of the SessionFactory
+     */
+    public static Statistics getStatistics() {
+        return emf().unwrap(SessionFactory.class).getStatistics();
     }
 
     /**
@@ -71,54 +377,400 @@ public class Database {
      * @return EntityManagerFactory instance
      */
     public static EntityManagerFactory getEntityManagerFactory() {
-        return emf;
+        return emf();
     }
 
     /**
      * Fetches all books from the database
+     * Served from the catalogue cache until the next write of this or another process
      * @return List of Book objects from the database
      */
     public static List<Book> getAllBooks() {
-        try (EntityManager em = emf.createEntityManager()) {
-            var query = em.createQuery("SELECT b FROM Book b ORDER BY id", Book.class);
-            return query.getResultList();
+        return getAllBooks(0);
+    }
+
+    /**
+     * Fetches books from the database with a limit
+     * Served from the catalogue cache until the next write of this or another process
+     * @param limit maximum number of books to return, 0 or negative for no limit
+     * @return List of Book objects from the database
+     */
+    public static List<Book> getAllBooks(int limit) {
+        try (Metrics.Timer timer = metrics.start("getAllBooks")) {
+            // Drops the cache first if another process changed the catalogue since the last check
+            getCatalogueVersion();
+            return bookCache.get(limit, () -> queryBooks(limit));
         } catch (Exception e) {
-            log.error("Error fetching books from database: " + e.getMessage(), e);
+            log.error("Error fetching books from database: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
 
     /**
-     * Fetches books from the database with a limit
+     * Queries books from the database, bypassing the catalogue cache
+     * Runs on a stateless session: the books are never tracked, so no dirty-check snapshots are taken.
+     * A stateless session neither reads nor fills the second-level and query caches, so a BookCache miss
+     * always runs the full query. This is the trade-off taken: BookCache already holds the result until
+     * the next write, and a cached id list larger than the entity region would be resolved with one
+     * SELECT per evicted book, which is slower than reading the rows again
      * @param limit maximum number of books to return, 0 or negative for no limit
      * @return List of Book objects from the database
      */
-    public static List<Book> getAllBooks(int limit) {
-        try (EntityManager em = emf.createEntityManager()) {
-            var query = em.createQuery("SELECT b FROM Book b ORDER BY id", Book.class);
+    private static List<Book> queryBooks(int limit) {
+        // Read from the primary: the result is cached until the next write, a lagging replica would pin stale rows
+        try (Permit permit = acquirePermit(); StatelessSession session = openReadSession()) {
+            var query = session.createQuery("SELECT b FROM Book b ORDER BY id", Book.class);
+            query.setFetchSize(fetchSize);
+            if (limit > 0) {
+                query.setMaxResults(limit);
+            }
+            return query.getResultList();
+        }
+    }
+
+    /**
+     * Opens a session for reads that do not need a persistence context
+     * Entities come back detached and are neither snapshotted nor put into the second-level cache;
+     * opened inside ReplicaRouter.readFromReplica() the session reads from a replica
+     * @return StatelessSession to close after the read
+     */
+    private static StatelessSession openReadSession() {
+        return emf().unwrap(SessionFactory.class).openStatelessSession();
+    }
+
+    /**
+     * Gets the persisted version of the book catalogue, bumped in the transaction of every book write
+     * The version is read from the primary at most once per cache.catalogueVersion.ttlMs, so conditional
+     * GETs do not each take a permit. When it moved, a write of another process, e.g. a CLI import, changed
+     * the catalogue: the BookCache and the Hibernate book regions are dropped before the new version is
+     * returned, so no ETag of the new version is sent with a body of the old one
+     * @return version stamp of the catalogue
+     */
+    public static long getCatalogueVersion() {
+        try (Metrics.Timer timer = metrics.start("getCatalogueVersion")) {
+            long version = catalogueVersion;
+            if (version >= 0 && System.nanoTime() - catalogueVersionReadAt < catalogueVersionTtlNanos) {
+                return version;
+            }
+            synchronized (catalogueVersionLock) {
+                if (catalogueVersion >= 0 && System.nanoTime() - catalogueVersionReadAt < catalogueVersionTtlNanos) {
+                    return catalogueVersion;
+                }
+                version = readCatalogueVersion();
+                if (version != catalogueVersion) {
+                    evictBookCaches();
+                }
+                catalogueVersion = version;
+                catalogueVersionReadAt = System.nanoTime();
+                return version;
+            }
+        }
+    }
+
+    /**
+     * Reads the persisted catalogue version from the primary
+     * @return version stamp of the catalogue, 0 if the row is missing
+     */
+    private static long readCatalogueVersion() {
+        try (Permit permit = acquirePermit(); StatelessSession session = openReadSession()) {
+            Long version = session.createQuery("SELECT v.version FROM CatalogueVersion v WHERE v.id = :id", Long.class)
+                .setParameter("id", CatalogueVersion.ID)
+                .uniqueResult();
+            return version != null ? version : 0;
+        }
+    }
+
+    /**
+     * Bumps the persisted catalogue version in the current transaction
+     * The row is seeded at bootstrap; should it be missing anyway, SQLite and PostgreSQL create it in the
+     * same statement, so two concurrent first writers cannot both insert it
+     * @param em entity manager with an active transaction
+     */
+    private static void bumpCatalogueVersion(EntityManager em) {
+        if (supportsNativeUpsert()) {
+            em.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(BUMP_CATALOGUE_VERSION_SQL)) {
+                    statement.setInt(1, CatalogueVersion.ID);
+                    statement.setLong(2, System.currentTimeMillis());
+                    statement.executeUpdate();
+                }
+            });
+            return;
+        }
+        int updated = em.createQuery("UPDATE CatalogueVersion v SET v.version = v.version + 1 WHERE v.id = :id")
+            .setParameter("id", CatalogueVersion.ID)
+            .executeUpdate();
+        if (updated == 0) {
+            em.persist(new CatalogueVersion(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Gets the catalogue cache, e.g. to read its hit and miss counters
+     * @return BookCache instance
+     */
+    public static BookCache getBookCache() {
+        return bookCache;
+    }
+
+    /**
+     * Streams books from the database to a consumer without building a result list
+     * Read from a replica in keyset pages of db.fetch.size rows on stateless sessions, see readPages
+     * @param limit maximum number of books to stream, 0 or negative for no limit
+     * @param consumer receives the books in id order
+     * @return number of books passed to the consumer
+     */
+    public static long streamBooks(int limit, Consumer<Book> consumer) {
+        return streamBooks(limit, true, consumer);
+    }
+
+    /**
+     * Streams books from the database to a consumer without building a result list
+     * @param limit maximum number of books to stream, 0 or negative for no limit
+     * @param fromReplica false to read from the primary, e.g. to build an index that is only updated by writes
+     * @param consumer receives the books in id order
+     * @return number of books passed to the consumer
+     */
+    private static long streamBooks(int limit, boolean fromReplica, Consumer<Book> consumer) {
+        try {
+            return readPages("streamBooks", limit, fromReplica, (session, afterId, pageSize) -> {
+                var query = session.createQuery(afterId == null ? "SELECT b FROM Book b ORDER BY b.id"
+                    : "SELECT b FROM Book b WHERE b.id > :afterId ORDER BY b.id", Book.class);
+                if (afterId != null) {
+                    query.setParameter("afterId", afterId);
+                }
+                return query.setMaxResults(pageSize).getResultList();
+            }, Book::getId, consumer);
+        } catch (RuntimeException e) {
+            log.error("Error streaming books from database: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches id and title of the books without loading Book entities
+     * @param limit maximum number of books to return, 0 or negative for no limit
+     * @return List of BookTitle objects ordered by id
+     */
+    public static List<BookTitle> getBookTitles(int limit) {
+        try (Metrics.Timer timer = metrics.start("getBookTitles"); Permit permit = acquirePermit();
+             ReplicaRouter.Route route = ReplicaRouter.readFromReplica(); StatelessSession session = openReadSession()) {
+            var query = session.createQuery("SELECT new ch.bzz.model.BookTitle(b.id, b.title) FROM Book b ORDER BY b.id",
+                BookTitle.class);
             if (limit > 0) {
                 query.setMaxResults(limit);
             }
             return query.getResultList();
         } catch (Exception e) {
-            log.error("Error fetching books from database: " + e.getMessage(), e);
+            log.error("Error fetching book titles from database: {}", e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Streams only the selected columns of the books to a consumer
+     * Scalar results on a stateless session, so nothing is snapshotted or tracked; every page read is timed
+     * as streamBookFields, the time the consumer takes is not, see readPages
+     * @param fields attributes to select, each one of BOOK_FIELDS
+     * @param limit maximum number of books to stream, 0 or negative for no limit
+     * @param consumer receives one array per book with the values in the order of fields
+     * @return number of books passed to the consumer
+     */
+    public static long streamBookFields(List<String> fields, int limit, Consumer<Object[]> consumer) {
+        if (fields.isEmpty() || !BOOK_FIELDS.containsAll(fields)) {
+            throw new IllegalArgumentException("Unknown book fields: " + fields);
+        }
+        // The id is always selected first, it is the key of the next page
+        StringJoiner select = new StringJoiner(", ");
+        select.add("b.id");
+        for (String field : fields) {
+            select.add("b." + field);
+        }
+
+        try {
+            return readPages("streamBookFields", limit, true, (session, afterId, pageSize) -> {
+                var query = session.createQuery("SELECT " + select + " FROM Book b"
+                    + (afterId == null ? "" : " WHERE b.id > :afterId") + " ORDER BY b.id", Tuple.class);
+                if (afterId != null) {
+                    query.setParameter("afterId", afterId);
+                }
+                return query.setMaxResults(pageSize).getResultList();
+            }, row -> row.get(0, Integer.class), row -> {
+                Object[] values = row.toArray();
+                consumer.accept(Arrays.copyOfRange(values, 1, values.length));
+            });
+        } catch (RuntimeException e) {
+            log.error("Error streaming book fields from database: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Exports all books to a TSV file in the format FileHandler.readBooksFromTSV reads
+     * Timed as a whole, the file writes included, in addition to the page reads of streamBookFields
+     * @param filePath path of the file to create or overwrite
+     * @return number of exported books
+     * @throws IOException if the file cannot be written
+     */
+    public static long exportBooksToTSV(String filePath) throws IOException {
+        try (Metrics.Timer timer = metrics.start("exportBooksToTSV");
+             FileChannel channel = FileChannel.open(Path.of(filePath),
+                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return exportBooks(channel);
+        }
+    }
+
+    /**
+     * Streams all books as TSV lines with a header to a channel
+     * The rows are read as scalars with streamBookFields and encoded by FileHandler.TsvWriter straight into
+     * one reusable buffer, so memory use does not grow with the size of the catalogue
+     * @param channel destination of the TSV data, left open
+     * @return number of written books
+     * @throws IOException if writing to the channel fails
+     */
+    public static long exportBooks(WritableByteChannel channel) throws IOException {
+        FileHandler.TsvWriter writer = new FileHandler.TsvWriter(channel);
+        writer.writeRow(new Object[] {"id", "isbn", "title", "author", "year"});
+        long count;
+        try {
+            count = streamBookFields(BOOK_FIELDS, 0, writer::writeRow);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Reads rows in id order one keyset page at a time and hands them to a consumer
+     * A permit and a connection are held only while a page is read, never while the consumer runs,
+     * so a slow consumer such as an HTTP client cannot keep db.maxInFlight slots or pooled connections busy.
+     * Every page is its own read, so a write between two pages is seen by the later pages only.
+     * The operation's timer measures each page read on its own, the time the consumer takes is not included
+     * @param operation name of the timed Database operation
+     * @param limit maximum number of rows, 0 or negative for no limit
+     * @param fromReplica true to read from a replica, false to read from the primary
+     * @param reader reads the page after the given id, or the first page for null
+     * @param idOf extracts the id of a row, the key of the next page
+     * @param consumer receives the rows in id order
+     * @return number of rows passed to the consumer
+     */
+    private static <T> long readPages(String operation, int limit, boolean fromReplica, PageReader<T> reader,
+                                      ToIntFunction<T> idOf, Consumer<T> consumer) {
+        long count = 0;
+        Integer afterId = null;
+        while (limit <= 0 || count < limit) {
+            int pageSize = limit > 0 ? (int) Math.min(fetchSize, limit - count) : fetchSize;
+            List<T> page;
+            try (Metrics.Timer timer = metrics.start(operation); Permit permit = acquirePermit();
+                 ReplicaRouter.Route route = fromReplica ? ReplicaRouter.readFromReplica() : null;
+                 StatelessSession session = openReadSession()) {
+                page = reader.read(session, afterId, pageSize);
+            }
+            for (T row : page) {
+                consumer.accept(row);
+            }
+            count += page.size();
+            if (page.size() < pageSize) {
+                break;
+            }
+            afterId = idOf.applyAsInt(page.get(page.size() - 1));
+        }
+        return count;
+    }
+
+    /**
+     * Query for one keyset page of readPages
+     */
+    private interface PageReader<T> {
+        List<T> read(StatelessSession session, Integer afterId, int pageSize);
+    }
+
+    /**
+     * Fetches a single book by id from the in-memory primary index
+     * The index is built from the database on the first lookup and kept in sync by saveBooks
+     * @param id the book ID
+     * @return the Book or null if there is no book with this id
+     */
+    public static Book findBookById(int id) {
+        try (Metrics.Timer timer = metrics.start("findBookById")) {
+            lookupIndex.ensureLoaded(consumer -> streamBooks(0, false, consumer));
+            return lookupIndex.findById(id);
+        }
+    }
+
+    /**
+     * Fetches a single book by ISBN from the in-memory primary index
+     * @param isbn the ISBN number
+     * @return the Book or null if there is no book with this ISBN
+     */
+    public static Book findBookByIsbn(String isbn) {
+        try (Metrics.Timer timer = metrics.start("findBookByIsbn")) {
+            lookupIndex.ensureLoaded(consumer -> streamBooks(0, false, consumer));
+            return lookupIndex.findByIsbn(isbn);
+        }
+    }
+
+    /**
+     * Searches books by title and author through the in-memory full-text index
+     * The index is built from the database on the first search and kept in sync by saveBooks
+     * @param query search text, all terms must match
+     * @param offset number of results to skip
+     * @param limit maximum number of results to return
+     * @return total number of matches and the requested page, best matches first
+     */
+    public static BookSearchIndex.SearchResult searchBooks(String query, int offset, int limit) {
+        try (Metrics.Timer timer = metrics.start("searchBooks")) {
+            searchIndex.ensureLoaded(consumer -> streamBooks(0, false, consumer));
+            return searchIndex.search(query, offset, limit);
+        }
+    }
+
+    /**
+     * Fetches the page of books following the given id (keyset pagination)
+     * The id filter uses the primary key index, so every page costs the same regardless of its depth
+     * @param afterId id of the last book of the previous page, 0 for the first page
+     * @param limit maximum number of books to return
+     * @return List of Book objects with an id greater than afterId, ordered by id
+     */
+    public static List<Book> getBooksAfter(int afterId, int limit) {
+        // Read from the primary: pages go into the query cache, evicted on writes of this process and
+        // once getCatalogueVersion sees a write of another process
+        getCatalogueVersion();
+        try (Metrics.Timer timer = metrics.start("getBooksAfter"); Permit permit = acquirePermit();
+             EntityManager em = emf().createEntityManager()) {
+            var query = em.createQuery("SELECT b FROM Book b WHERE b.id > :afterId ORDER BY id", Book.class);
+            query.setParameter("afterId", afterId);
+            // Pages up to MAX_CACHED_PAGE_SIZE stay on the query cache; read-only skips the dirty-check snapshots
+            query.setHint("org.hibernate.cacheable", limit <= MAX_CACHED_PAGE_SIZE);
+            query.setHint("org.hibernate.readOnly", true);
+            query.setMaxResults(limit);
+            return query.getResultList();
+        } catch (Exception e) {
+            log.error("Error fetching books from database: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
 
     /**
      * Saves a list of books to the database, updating existing entries with same id
+     * Uses the native upsert of SQLite/PostgreSQL in JDBC batches instead of a SELECT per row
      * @param books list of books to save
      */
     public static void saveBooks(List<Book> books) {
-        try (EntityManager em = emf.createEntityManager()) {
+        long start = System.nanoTime();
+        List<Book> written = null;
+        try (Metrics.Timer timer = metrics.start("saveBooks"); Permit permit = acquirePermit();
+             EntityManager em = emf().createEntityManager()) {
             try {
                 em.getTransaction().begin();
-                for (Book book : books) {
-                    em.merge(book); // merge handles both insert and update
-                }
+                written = writeBooks(em, books);
+                forgetFingerprints(em, books);
+                bumpCatalogueVersion(em);
                 em.getTransaction().commit();
-                log.info(books.size() + " Bücher erfolgreich importiert/aktualisiert.");
+                double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+                log.info("{} Bücher erfolgreich importiert/aktualisiert ({} Zeilen/s).", books.size(),
+                    Math.round(books.size() / seconds));
             } catch (RuntimeException e) {
                 if (em.getTransaction().isActive()) {
                     em.getTransaction().rollback();
@@ -126,20 +778,332 @@ public class Database {
                 log.error("Error during saving of books to the database:", e);
             }
         } catch (Exception e) {
-            log.error("Error saving books to database: " + e.getMessage(), e);
+            log.error("Error saving books to database: {}", e.getMessage(), e);
+        }
+        if (written != null) {
+            publishBooks(written);
+        }
+    }
+
+    /**
+     * Makes committed books visible to the caches and indexes
+     * Called after the permit is released: the indexes take their write lock here,
+     * and no thread may wait for an index lock while it holds a permit
+     * @param written books that were inserted or updated
+     */
+    private static void publishBooks(List<Book> written) {
+        evictBookCaches();
+        // The write bumped the persisted version, re-read it on the next check instead of after the TTL
+        catalogueVersion = -1;
+        searchIndex.update(written);
+        lookupIndex.update(written);
+    }
+
+    /**
+     * Saves books like saveBooks, but reports how many of them replaced an existing row
+     * Failures are not swallowed, so callers such as the ingest endpoint can reject the batch
+     * @param books list of books to save, books without id get a generated one
+     * @return number of books whose id already existed, the others were inserted
+     * @throws RuntimeException if the transaction fails, after it was rolled back
+     */
+    public static int saveBooksCountingUpdates(List<Book> books) {
+        int updated;
+        List<Book> written;
+        try (Metrics.Timer timer = metrics.start("saveBooksCountingUpdates"); Permit permit = acquirePermit();
+             EntityManager em = emf().createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                updated = countExistingBooks(em, books);
+                written = writeBooks(em, books);
+                forgetFingerprints(em, books);
+                bumpCatalogueVersion(em);
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                log.error("Error during saving of books to the database:", e);
+                throw e;
+            }
+        }
+        publishBooks(written);
+        return updated;
+    }
+
+    /**
+     * Counts the books whose id is already in the database
+     * @param em entity manager with an active transaction
+     * @param books books to check, books without id are new
+     * @return number of existing rows among the ids of the books
+     */
+    private static int countExistingBooks(EntityManager em, List<Book> books) {
+        int existing = 0;
+        for (List<Integer> ids : idChunks(books)) {
+            existing += em.createQuery("SELECT COUNT(b) FROM Book b WHERE b.id IN :ids", Long.class)
+                .setParameter("ids", ids)
+                .getSingleResult()
+                .intValue();
+        }
+        return existing;
+    }
+
+    /**
+     * Splits the ids of the books into lists short enough for an IN parameter
+     * @param books books, books without id are left out
+     * @return lists of at most ID_LOOKUP_SIZE ids
+     */
+    private static List<List<Integer>> idChunks(List<Book> books) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(ID_LOOKUP_SIZE);
+        for (Book book : books) {
+            if (book.getId() == null) {
+                continue;
+            }
+            if (ids.size() == ID_LOOKUP_SIZE) {
+                chunks.add(ids);
+                ids = new ArrayList<>(ID_LOOKUP_SIZE);
+            }
+            ids.add(book.getId());
+        }
+        if (!ids.isEmpty()) {
+            chunks.add(ids);
+        }
+        return chunks;
+    }
+
+    /**
+     * Writes books in the current transaction, with the native upsert where the database supports it
+     * @param em entity manager with an active transaction
+     * @param books books to write
+     * @return the written books, books that were inserted through JPA replaced by their copies with the generated id
+     */
+    private static List<Book> writeBooks(EntityManager em, List<Book> books) {
+        if (!supportsNativeUpsert()) {
+            return mergeBooks(em, books);
+        }
+        List<Book> withoutId = new ArrayList<>();
+        em.unwrap(Session.class).doWork(connection -> upsertBooks(connection, books, withoutId));
+        if (withoutId.isEmpty()) {
+            return books;
+        }
+        List<Book> written = new ArrayList<>(books.size());
+        for (Book book : books) {
+            if (book.getId() != null) {
+                written.add(book);
+            }
+        }
+        written.addAll(mergeBooks(em, withoutId));
+        return written;
+    }
+
+    /**
+     * Saves the books whose content differs from the fingerprint stored by the previous delta import
+     * Unchanged rows are skipped; written rows get their new fingerprint in the same transaction
+     * A book without id is rejected: its fingerprint could not be matched to a row, so every run would
+     * insert it again
+     * @param books books with explicit ids, e.g. one checkpoint segment of a delta import
+     * @return number of books written, the others were unchanged
+     * @throws IllegalArgumentException if a book has no id, before anything is written
+     * @throws RuntimeException if the transaction fails, after it was rolled back
+     */
+    public static int saveBooksDelta(List<Book> books) {
+        for (Book book : books) {
+            if (book.getId() == null) {
+                throw new IllegalArgumentException("Delta import needs an id for every book, missing for ISBN "
+                    + book.getIsbn());
+            }
+        }
+        List<Book> changed = new ArrayList<>();
+        try (Metrics.Timer timer = metrics.start("saveBooksDelta"); Permit permit = acquirePermit();
+             EntityManager em = emf().createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                Map<Integer, Long> stored = loadFingerprints(em, books);
+                List<BookFingerprint> fingerprints = new ArrayList<>();
+                for (Book book : books) {
+                    long fingerprint = BookFingerprint.of(book);
+                    Long previous = stored.get(book.getId());
+                    if (previous == null || previous != fingerprint) {
+                        changed.add(book);
+                        fingerprints.add(new BookFingerprint(book.getId(), fingerprint));
+                    }
+                }
+
+                if (supportsNativeUpsert()) {
+                    em.unwrap(Session.class).doWork(connection -> {
+                        upsertBooks(connection, changed, new ArrayList<>());
+                        upsertFingerprints(connection, fingerprints);
+                    });
+                } else {
+                    mergeBooks(em, changed);
+                    for (BookFingerprint fingerprint : fingerprints) {
+                        em.merge(fingerprint);
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    bumpCatalogueVersion(em);
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                log.error("Error during delta saving of books to the database:", e);
+                throw e;
+            }
+        }
+        if (!changed.isEmpty()) {
+            publishBooks(changed);
+        }
+        return changed.size();
+    }
+
+    /**
+     * Reads the stored fingerprints of the given books
+     * @param em entity manager with an active transaction
+     * @param books books with explicit ids
+     * @return fingerprint by book id, books without a fingerprint are missing
+     */
+    private static Map<Integer, Long> loadFingerprints(EntityManager em, List<Book> books) {
+        Map<Integer, Long> fingerprints = new HashMap<>(books.size() * 2);
+        for (List<Integer> ids : idChunks(books)) {
+            var query = em.createQuery(
+                "SELECT f.bookId, f.fingerprint FROM BookFingerprint f WHERE f.bookId IN :ids", Tuple.class);
+            for (Tuple row : query.setParameter("ids", ids).getResultList()) {
+                fingerprints.put(row.get(0, Integer.class), row.get(1, Long.class));
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Upserts fingerprints in JDBC batches of batchSize rows
+     * @param connection connection of the current transaction
+     * @param fingerprints fingerprints to write
+     * @throws SQLException if a batch fails
+     */
+    private static void upsertFingerprints(Connection connection, List<BookFingerprint> fingerprints) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_FINGERPRINT_SQL)) {
+            int pending = 0;
+            for (BookFingerprint fingerprint : fingerprints) {
+                statement.setInt(1, fingerprint.getBookId());
+                statement.setLong(2, fingerprint.getFingerprint());
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Drops the fingerprints of books written outside a delta import
+     * Their stored content may no longer match the fingerprint, so the next delta import rewrites them;
+     * only the written ids are deleted, in IN lists of ID_LOOKUP_SIZE, so fingerprints of other rows stay
+     * @param em entity manager with an active transaction
+     * @param books books that were just written, books without id are new and have no fingerprint
+     */
+    private static void forgetFingerprints(EntityManager em, List<Book> books) {
+        for (List<Integer> ids : idChunks(books)) {
+            em.createQuery("DELETE FROM BookFingerprint f WHERE f.bookId IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        }
+    }
+
+    /**
+     * Drops cached book data after a write
+     * The native upsert bypasses Hibernate, so the second-level and query caches are not updated by it
+     */
+    private static void evictBookCaches() {
+        bookCache.invalidate();
+        org.hibernate.Cache cache = emf().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Book.class);
+        cache.evictQueryRegions();
+    }
+
+    /**
+     * Checks whether the configured database understands INSERT ... ON CONFLICT
+     * @return true for SQLite and PostgreSQL connections
+     */
+    private static boolean supportsNativeUpsert() {
+        String url = config.getProperty("jakarta.persistence.jdbc.url", config.getProperty("DB_URL", ""));
+        return url.startsWith("jdbc:sqlite:") || url.startsWith("jdbc:postgresql:");
+    }
+
+    /**
+     * Upserts books with explicit ids in JDBC batches of batchSize rows
+     * @param connection connection of the current transaction
+     * @param books books to write
+     * @param withoutId collects books without id, which need a generated key and are left to JPA
+     * @throws SQLException if a batch fails
+     */
+    private static void upsertBooks(Connection connection, List<Book> books, List<Book> withoutId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_BOOK_SQL)) {
+            int pending = 0;
+            for (Book book : books) {
+                if (book.getId() == null) {
+                    withoutId.add(book);
+                    continue;
+                }
+                statement.setInt(1, book.getId());
+                statement.setString(2, book.getIsbn());
+                statement.setString(3, book.getTitle());
+                statement.setString(4, book.getAuthor());
+                if (book.getPublicationYear() != null) {
+                    statement.setInt(5, book.getPublicationYear());
+                } else {
+                    statement.setNull(5, Types.INTEGER);
+                }
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Merges books through JPA, flushing and clearing the persistence context every batchSize rows
+     * @param em entity manager with an active transaction
+     * @param books books to merge
+     * @return the merged copies, carrying the generated ids of inserted books
+     */
+    private static List<Book> mergeBooks(EntityManager em, List<Book> books) {
+        List<Book> merged = new ArrayList<>(books.size());
+        int pending = 0;
+        for (Book book : books) {
+            merged.add(em.merge(book)); // merge handles both insert and update
+            if (++pending == batchSize) {
+                em.flush();
+                em.clear();
+                pending = 0;
+            }
         }
+        return merged;
     }
 
     /**
      * Fetches all users from the database
+     * Runs on a stateless session, the users come back detached
      * @return List of User objects from the database
      */
     public static List<User> getAllUsers() {
-        try (EntityManager em = emf.createEntityManager()) {
-            var query = em.createQuery("SELECT u FROM User u ORDER BY id", User.class);
+        try (Metrics.Timer timer = metrics.start("getAllUsers"); Permit permit = acquirePermit();
+             ReplicaRouter.Route route = ReplicaRouter.readFromReplica(); StatelessSession session = openReadSession()) {
+            var query = session.createQuery("SELECT u FROM User u ORDER BY id", User.class);
+            query.setFetchSize(fetchSize);
             return query.getResultList();
         } catch (Exception e) {
-            log.error("Error fetching users from database: " + e.getMessage(), e);
+            log.error("Error fetching users from database: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
@@ -149,12 +1113,13 @@ public class Database {
      * @param user the user to save
      */
     public static void saveUser(User user) {
-        try (EntityManager em = emf.createEntityManager()) {
+        try (Metrics.Timer timer = metrics.start("saveUser"); Permit permit = acquirePermit();
+             EntityManager em = emf().createEntityManager()) {
             try {
                 em.getTransaction().begin();
                 em.merge(user); // merge handles both insert and update
                 em.getTransaction().commit();
-                log.info("Benutzer erfolgreich gespeichert: " + user.getEmail());
+                log.info("Benutzer erfolgreich gespeichert: {}", user.getEmail());
             } catch (RuntimeException e) {
                 if (em.getTransaction().isActive()) {
                     em.getTransaction().rollback();
@@ -163,17 +1128,152 @@ public class Database {
                 throw e; // Re-throw to allow caller to handle
             }
         } catch (Exception e) {
-            log.error("Error saving user to database: " + e.getMessage(), e);
+            log.error("Error saving user to database: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save user", e);
         }
     }
 
+    /**
+     * Inserts users in a single transaction, skipping users whose email is already taken
+     * If the batch violates a constraint, e.g. because another import inserted the same email meanwhile,
+     * the users are retried one by one so a single bad row does not reject the whole batch. Any other
+     * failure, e.g. a lost connection, would fail every row again and is thrown instead
+     * @param users new users without id
+     * @return reason per email of the users that were not inserted
+     * @throws RuntimeException if a write fails for another reason than a constraint violation
+     */
+    public static Map<String, String> saveUsers(List<User> users) {
+        try (Metrics.Timer timer = metrics.start("saveUsers"); Permit permit = acquirePermit();
+             EntityManager em = emf().createEntityManager()) {
+            Map<String, String> rejected = new HashMap<>();
+            try {
+                em.getTransaction().begin();
+                List<String> emails = new ArrayList<>(users.size());
+                for (User user : users) {
+                    emails.add(user.getEmail());
+                }
+                for (String email : em.createQuery("SELECT u.email FROM User u WHERE u.email IN :emails", String.class)
+                        .setParameter("emails", emails)
+                        .getResultList()) {
+                    rejected.put(email, emailTaken(email));
+                }
+
+                // IDENTITY ids rule out JDBC batching, but one transaction still saves a commit per user
+                int pending = 0;
+                for (User user : users) {
+                    if (rejected.containsKey(user.getEmail())) {
+                        continue;
+                    }
+                    em.persist(user);
+                    if (++pending == batchSize) {
+                        em.flush();
+                        em.clear();
+                        pending = 0;
+                    }
+                }
+                em.getTransaction().commit();
+                return rejected;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                log.warn("Batch insert of {} users failed, retrying one by one: {}", users.size(), e.getMessage());
+            }
+
+            em.clear();
+            for (User user : users) {
+                if (rejected.containsKey(user.getEmail())) {
+                    continue;
+                }
+                user.setId(null);
+                try {
+                    em.getTransaction().begin();
+                    em.persist(user);
+                    em.getTransaction().commit();
+                } catch (RuntimeException e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    if (!isConstraintViolation(e)) {
+                        throw e;
+                    }
+                    em.clear();
+                    rejected.put(user.getEmail(), rejectionReason(em, user, e));
+                }
+            }
+            return rejected;
+        }
+    }
+
+    private static String emailTaken(String email) {
+        return "Email already exists: " + email;
+    }
+
+    /**
+     * Describes why a single user violated a constraint
+     * It is only reported as a taken email if the email is in the table now; any other violation
+     * is reported with its root cause
+     * @param em entity manager without an active transaction
+     * @param user the user that failed
+     * @param e the constraint violation of its insert
+     * @return message for the import summary
+     */
+    private static String rejectionReason(EntityManager em, User user, RuntimeException e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        try {
+            long taken = em.createQuery("SELECT COUNT(u) FROM User u WHERE u.email = :email", Long.class)
+                .setParameter("email", user.getEmail())
+                .getSingleResult();
+            if (taken > 0) {
+                return emailTaken(user.getEmail());
+            }
+        } catch (RuntimeException lookupFailure) {
+            log.warn("Could not check email {} after a failed insert: {}", user.getEmail(), lookupFailure.getMessage());
+        }
+        return "Insert failed: " + (cause.getMessage() != null ? cause.getMessage() : cause.toString());
+    }
+
+    /**
+     * Tells whether a failed write violated a constraint, i.e. failed because of the row and not the database
+     * @param e exception thrown by the write, possibly wrapping the Hibernate exception
+     * @return true if a ConstraintViolationException is in the cause chain
+     */
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+            if (cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Closes the EntityManagerFactory when the application shuts down
+     * Waits for a running bootstrap, so a half-built pool is not left open
      */
     public static void close() {
-        if (emf != null && emf.isOpen()) {
-            emf.close();
+        CompletableFuture<EntityManagerFactory> running;
+        synchronized (Database.class) {
+            running = bootstrap;
+        }
+        if (running == null) {
+            return;
+        }
+        EntityManagerFactory factory = running.exceptionally(e -> null).join();
+        if (factory != null && factory.isOpen()) {
+            factory.close();
+        }
+        if (router != null) {
+            router.close();
+        }
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.ToIntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports a changed TSV feed incrementally: only rows whose content fingerprint differs from the
+ * stored one are written, see Database.saveBooksDelta
+ * Every row needs an id, the fingerprints are keyed by it; the parser rejects lines without one
+ * The file is committed segment by segment; after every commit the end offset is saved to a checkpoint
+ * file next to the input, so an interrupted import resumes after the last committed segment
+ */
+public class DeltaImporter {
+    private static final Logger log = LoggerFactory.getLogger(DeltaImporter.class);
+
+    /** Target size of the segment committed before each checkpoint */
+    static final long CHECKPOINT_SIZE = 1024L * 1024;
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    /**
+     * Imports the changed rows of a TSV file into the database
+     * @param file path to the TSV file
+     * @return number of written, unchanged and rejected rows, including segments of a resumed run
+     * @throws IOException if the file or the checkpoint cannot be read or written
+     */
+    public static DeltaSummary importBooks(Path file) throws IOException {
+        return importBooks(file, CHECKPOINT_SIZE, Database::saveBooksDelta);
+    }
+
+    /**
+     * Imports the changed rows of a TSV file
+     * @param file path to the TSV file
+     * @param checkpointSize target size of the segment committed before each checkpoint
+     * @param writer writes one segment in a single transaction and returns the number of written rows
+     * @return number of written, unchanged and rejected rows, including segments of a resumed run
+     * @throws IOException if the file or the checkpoint cannot be read or written
+     */
+    static DeltaSummary importBooks(Path file, long checkpointSize, ToIntFunction<List<Book>> writer) throws IOException {
+        Path checkpointFile = checkpointFile(file);
+        DeltaSummary summary = loadCheckpoint(file, checkpointFile);
+        if (summary.offset > 0) {
+            log.info("Setze Delta-Import von {} bei Byte {} fort.", file, summary.offset);
+        }
+
+        for (long[] range : ParallelImporter.splitAtLineBoundaries(file, summary.offset, checkpointSize)) {
+            List<Book> books = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                channel.position(range[0]);
+                FileHandler.ParseResult result = FileHandler.parseBooks(channel, range[1] - range[0],
+                    range[0] == 0, FileHandler.DEFAULT_CHUNK_SIZE, books::addAll);
+                summary.rejected += result.getRejected();
+            }
+            int written = books.isEmpty() ? 0 : writer.applyAsInt(books);
+            summary.written += written;
+            summary.unchanged += books.size() - written;
+            summary.offset = range[1];
+            saveCheckpoint(file, checkpointFile, summary);
+        }
+
+        Files.deleteIfExists(checkpointFile);
+        return summary;
+    }
+
+    static Path checkpointFile(Path file) {
+        return file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Reads the progress of an interrupted import
+     * A checkpoint of a file that changed since is ignored, the import then starts over
+     * @return summary of the committed segments, or an empty one
+     */
+    private static DeltaSummary loadCheckpoint(Path file, Path checkpointFile) throws IOException {
+        DeltaSummary summary = new DeltaSummary();
+        Properties checkpoint = new Properties();
+        try (InputStream input = Files.newInputStream(checkpointFile)) {
+            checkpoint.load(input);
+        } catch (NoSuchFileException e) {
+            return summary;
+        }
+
+        if (!fileStamp(file).equals(checkpoint.getProperty("file"))) {
+            log.warn("Checkpoint {} gehört zu einer älteren Version der Datei und wird ignoriert.", checkpointFile);
+            return summary;
+        }
+        summary.offset = Long.parseLong(checkpoint.getProperty("offset", "0"));
+        summary.written = Long.parseLong(checkpoint.getProperty("written", "0"));
+        summary.unchanged = Long.parseLong(checkpoint.getProperty("unchanged", "0"));
+        summary.rejected = Long.parseLong(checkpoint.getProperty("rejected", "0"));
+        return summary;
+    }
+
+    /**
+     * Records the committed offset, replacing the checkpoint atomically so a crash never leaves half a file
+     */
+    private static void saveCheckpoint(Path file, Path checkpointFile, DeltaSummary summary) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("file", fileStamp(file));
+        checkpoint.setProperty("offset", String.valueOf(summary.offset));
+        checkpoint.setProperty("written", String.valueOf(summary.written));
+        checkpoint.setProperty("unchanged", String.valueOf(summary.unchanged));
+        checkpoint.setProperty("rejected", String.valueOf(summary.rejected));
+
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (OutputStream output = Files.newOutputStream(temporary)) {
+            checkpoint.store(output, "Delta import of " + file.getFileName());
+        }
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Identifies the version of the input file by size and modification time
+     */
+    private static String fileStamp(Path file) throws IOException {
+        return Files.size(file) + "/" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    /**
+     * Outcome of a delta import
+     */
+    public static final class DeltaSummary {
+        private long offset;
+        private long written;
+        private long unchanged;
+        private long rejected;
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+    }
+}
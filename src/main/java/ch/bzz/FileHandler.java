@@ -1,18 +1,37 @@
 package ch.bzz;
 
 import ch.bzz.model.Book;
-import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * FileHandler class handles all file operations
- * Following the SRP principle by separating file handling concerns
+ * Following the SRP principle by separating file handling concerns: it only encodes and decodes TSV,
+ * the export of the database is Database.exportBooks
  */
 public class FileHandler {
     private static final Logger log = LoggerFactory.getLogger(FileHandler.class);
 
+    /** Number of books handed to the consumer at once when streaming */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int COLUMN_COUNT = 5;
+    /** Longest line in bytes that is parsed, longer lines are rejected without being buffered further */
+    static final int MAX_LINE_LENGTH = 16 * 1024;
+
     /**
      * Reads books from a TSV file and returns a List of Book objects
      * @param filePath path to the TSV file
@@ -20,57 +39,359 @@ public class FileHandler {
      */
     public static List<Book> readBooksFromTSV(String filePath) {
         List<Book> books = new ArrayList<>();
-        
-        try (Scanner fileScanner = new Scanner(new File(filePath))) {
-            // Skip header line if present
-            if (fileScanner.hasNextLine()) {
-                String headerLine = fileScanner.nextLine();
+        streamBooksFromTSV(filePath, DEFAULT_CHUNK_SIZE, books::addAll);
+        return books;
+    }
+
+    /**
+     * Streams books from a TSV file in fixed-size chunks without holding the whole file in memory
+     * @param filePath path to the TSV file
+     * @param chunkSize maximum number of books per chunk
+     * @param chunkConsumer receives each chunk as soon as it is complete
+     * @return number of accepted and rejected lines
+     */
+    public static ParseResult streamBooksFromTSV(String filePath, int chunkSize, Consumer<List<Book>> chunkConsumer) {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            return parseBooks(channel, channel.size(), true, chunkSize, chunkConsumer);
+        } catch (NoSuchFileException e) {
+            log.error("File not found: {}", filePath, e);
+        } catch (Exception e) {
+            log.error("Error reading file: {}", e.getMessage(), e);
+        }
+        return new ParseResult(0, 0);
+    }
+
+    /**
+     * Parses TSV lines from a channel and emits the books in chunks
+     * @param channel channel positioned at the first byte to parse
+     * @param limit maximum number of bytes to read from the channel
+     * @param detectHeader whether the first line may be a header line
+     * @param chunkSize maximum number of books per chunk
+     * @param chunkConsumer receives each chunk as soon as it is complete
+     * @return number of accepted and rejected lines
+     * @throws IOException if reading from the channel fails
+     */
+    static ParseResult parseBooks(ReadableByteChannel channel, long limit, boolean detectHeader,
+                                  int chunkSize, Consumer<List<Book>> chunkConsumer) throws IOException {
+        LineParser parser = new LineParser(detectHeader, chunkSize, chunkConsumer);
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        byte[] data = buffer.array();
+        long remaining = limit;
+
+        while (remaining > 0) {
+            buffer.clear();
+            if (remaining < buffer.capacity()) {
+                buffer.limit((int) remaining);
+            }
+            int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+
+            int lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (data[i] == '\n') {
+                    parser.append(data, lineStart, i - lineStart);
+                    parser.endLine();
+                    lineStart = i + 1;
+                }
+            }
+            parser.append(data, lineStart, read - lineStart);
+        }
+        parser.endLine();
+        parser.flush();
+        return new ParseResult(parser.accepted, parser.rejected);
+    }
+
+    /**
+     * Accumulates the bytes of one line and turns complete lines into books
+     */
+    private static final class LineParser {
+        private final int chunkSize;
+        private final Consumer<List<Book>> chunkConsumer;
+        private final int[] tabs = new int[COLUMN_COUNT - 1];
+        private byte[] line = new byte[256];
+        private int length;
+        private boolean tooLong;
+        private boolean headerPending;
+        private List<Book> chunk;
+        private long accepted;
+        private long rejected;
+
+        LineParser(boolean detectHeader, int chunkSize, Consumer<List<Book>> chunkConsumer) {
+            this.headerPending = detectHeader;
+            this.chunkSize = Math.max(1, chunkSize);
+            this.chunkConsumer = chunkConsumer;
+            this.chunk = new ArrayList<>(this.chunkSize);
+        }
+
+        void append(byte[] src, int offset, int count) {
+            if (length + count > MAX_LINE_LENGTH) {
+                tooLong = true;
+                count = MAX_LINE_LENGTH - length;
+            }
+            if (length + count > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+            }
+            System.arraycopy(src, offset, line, length, count);
+            length += count;
+        }
+
+        void endLine() {
+            int start = 0;
+            int end = length;
+            length = 0;
+            if (tooLong) {
+                tooLong = false;
+                headerPending = false;
+                log.warn("Line longer than {} bytes rejected", MAX_LINE_LENGTH);
+                rejected++;
+                return;
+            }
+            while (start < end && isWhitespace(line[start])) start++;
+            // Trailing tabs are kept, they end an empty last column such as a missing year
+            while (end > start && (line[end - 1] == ' ' || line[end - 1] == '\r')) end--;
+            if (start == end) return;
+
+            if (headerPending) {
+                headerPending = false;
                 // Check if it's actually a header (contains "id", "isbn", etc.)
-                if (!headerLine.toLowerCase().contains("id") || !headerLine.toLowerCase().contains("isbn")) {
-                    // If not a header, parse it as data
-                    String[] values = headerLine.split("\t");
-                    if (values.length >= 5) {
-                        try {
-                            int id = Integer.parseInt(values[0].trim());
-                            String isbn = values[1].trim();
-                            String title = values[2].trim();
-                            String author = values[3].trim();
-                            int year = Integer.parseInt(values[4].trim());
-                            books.add(new Book(id, isbn, title, author, year));
-                        } catch (NumberFormatException e) {
-                            log.warn("Error parsing line: " + headerLine, e);
-                        }
-                    }
+                String header = decode(start, end).toLowerCase();
+                if (header.contains("id") && header.contains("isbn")) {
+                    return;
+                }
+            }
+
+            int found = 0;
+            for (int i = start; i < end && found < tabs.length; i++) {
+                if (line[i] == '\t') {
+                    tabs[found++] = i;
+                }
+            }
+            if (found < tabs.length) {
+                if (log.isWarnEnabled()) {
+                    log.warn("Invalid line format (expected 5 columns): {}", decode(start, end));
+                }
+                rejected++;
+                return;
+            }
+
+            int yearEnd = end;
+            for (int i = tabs[3] + 1; i < end; i++) {
+                if (line[i] == '\t') {
+                    yearEnd = i;
+                    break;
+                }
+            }
+
+            try {
+                int id = parseInt(start, tabs[0]);
+                String isbn = decode(tabs[0] + 1, tabs[1]).trim();
+                String title = decode(tabs[1] + 1, tabs[2]).trim();
+                String author = decode(tabs[2] + 1, tabs[3]).trim();
+                // An empty year is a book without one, as TsvWriter writes a null year
+                Integer year = isBlank(tabs[3] + 1, yearEnd) ? null : parseInt(tabs[3] + 1, yearEnd);
+                chunk.add(new Book(id, isbn, title, author, year));
+                accepted++;
+            } catch (NumberFormatException e) {
+                if (log.isWarnEnabled()) {
+                    log.warn("Error parsing line: {}", decode(start, end), e);
+                }
+                rejected++;
+                return;
+            }
+
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+        private String decode(int from, int to) {
+            return new String(line, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        private int parseInt(int from, int to) {
+            while (from < to && isWhitespace(line[from])) from++;
+            while (to > from && isWhitespace(line[to - 1])) to--;
+            if (from == to) {
+                throw new NumberFormatException("Empty number");
+            }
+            boolean negative = line[from] == '-';
+            int i = negative || line[from] == '+' ? from + 1 : from;
+            if (i == to) {
+                throw new NumberFormatException(decode(from, to));
+            }
+            long value = 0;
+            for (; i < to; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException(decode(from, to));
+                }
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw new NumberFormatException(decode(from, to));
+                }
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException(decode(from, to));
+            }
+            return (int) value;
+        }
+
+        private boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!isWhitespace(line[i])) {
+                    return false;
                 }
             }
-            
-            // Parse remaining lines
-            while (fileScanner.hasNextLine()) {
-                String line = fileScanner.nextLine().trim();
-                if (line.isEmpty()) continue;
-                
-                String[] values = line.split("\t");
-                if (values.length >= 5) {
-                    try {
-                        int id = Integer.parseInt(values[0].trim());
-                        String isbn = values[1].trim();
-                        String title = values[2].trim();
-                        String author = values[3].trim();
-                        int year = Integer.parseInt(values[4].trim());
-                        books.add(new Book(id, isbn, title, author, year));
-                    } catch (NumberFormatException e) {
-                        log.warn("Error parsing line: " + line, e);
+            return true;
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+        }
+    }
+
+    /**
+     * Encodes rows as UTF-8 TSV lines into a direct buffer that is written to the channel whenever it is full
+     * Tabs and line breaks inside values are replaced by spaces, so every row stays one parseable line
+     */
+    static final class TsvWriter {
+        // A char needs at most 3 bytes in UTF-8, a surrogate pair 4 bytes for its 2 chars
+        private static final int MAX_BYTES_PER_CHAR = 3;
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+        TsvWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes one line with a column per value; null values are written as empty columns
+         * @param values Integer or String values
+         * @throws UncheckedIOException if writing to the channel fails
+         */
+        void writeRow(Object[] values) {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        ensure(1);
+                        buffer.put((byte) '\t');
                     }
+                    if (values[i] instanceof Integer) {
+                        writeInt((Integer) values[i]);
+                    } else if (values[i] != null) {
+                        writeString(values[i].toString());
+                    }
+                }
+                ensure(1);
+                buffer.put((byte) '\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            ensure(11);
+            long remaining = value;
+            if (remaining < 0) {
+                buffer.put((byte) '-');
+                remaining = -remaining;
+            }
+            long divisor = 1;
+            while (divisor * 10 <= remaining) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                buffer.put((byte) ('0' + remaining / divisor % 10));
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            int length = value.length();
+            int from = 0;
+            while (from < length) {
+                // Encode as many chars as are sure to fit, never splitting a surrogate pair
+                int to = Math.min(length, from + WRITE_BUFFER_SIZE / MAX_BYTES_PER_CHAR);
+                if (to < length && Character.isHighSurrogate(value.charAt(to - 1))) {
+                    to--;
+                }
+                ensure((to - from) * MAX_BYTES_PER_CHAR);
+                encode(value, from, to);
+                from = to;
+            }
+        }
+
+        private void encode(String value, int from, int to) {
+            for (int i = from; i < to; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer.put(c == '\t' || c == '\n' || c == '\r' ? (byte) ' ' : (byte) c);
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xc0 | c >> 6));
+                    buffer.put((byte) (0x80 | c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put((byte) (0xf0 | codePoint >> 18));
+                    buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+                    buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+                    buffer.put((byte) (0x80 | codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    buffer.put((byte) '?');
                 } else {
-                    log.warn("Invalid line format (expected 5 columns): " + line);
+                    buffer.put((byte) (0xe0 | c >> 12));
+                    buffer.put((byte) (0x80 | c >> 6 & 0x3f));
+                    buffer.put((byte) (0x80 | c & 0x3f));
                 }
             }
-        } catch (java.io.FileNotFoundException e) {
-            log.error("File not found: " + filePath, e);
-        } catch (Exception e) {
-            log.error("Error reading file: " + e.getMessage(), e);
         }
-        
-        return books;
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the channel
+         * @throws IOException if writing to the channel fails
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Summary of a parse run: number of books accepted and lines rejected
+     */
+    public static final class ParseResult {
+        private final long accepted;
+        private final long rejected;
+
+        public ParseResult(long accepted, long rejected) {
+            this.accepted = accepted;
+            this.rejected = rejected;
+        }
+
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,37 @@
 package ch.bzz;
 
 import ch.bzz.model.Book;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import io.javalin.Javalin;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
 import io.javalin.http.Context;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.hibernate.stat.Statistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Main class for the Javalin REST API server
@@ -14,16 +39,28 @@ import java.util.List;
 public class JavalinMain {
     private static final Logger logger = LoggerFactory.getLogger(JavalinMain.class);
     private static final int PORT = 7070;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Metrics requestMetrics = new Metrics("library_http_request_seconds",
+        "Duration of HTTP requests per route", "method", "route", "status");
+    private static final AtomicBoolean firstRequest = new AtomicBoolean(true);
+    // Request attribute set once a handler starts writing its body directly to the output stream
+    private static final String BODY_STARTED = "library.bodyStarted";
     
     public static void main(String[] args) {
-        logger.info("Starting Javalin REST API server on port {}", PORT);
+        // Build the persistence layer while Jetty starts instead of on the first request
+        Database.startBootstrap();
         
-        Javalin app = Javalin.create().start(PORT);
+
+        // -Dlibrary.server.threads=virtual runs the handlers on virtual threads
+        boolean virtualThreads = "virtual".equalsIgnoreCase(System.getProperty("library.server.threads", "platform"));
+        logger.info("Starting Javalin REST API server on port {} with {} threads", PORT,
+            virtualThreads ? "virtual" : "platform");
         
-        // GET /books endpoint with optional limit query parameter
-        app.get("/books", JavalinMain::getBooks);
+        Javalin app = createApp(virtualThreads).start(PORT);
         
-        logger.info("Javalin server started successfully on http://localhost:{}", PORT);
+        logger.info("Javalin server started successfully on http://localhost:{} after {} ms", PORT,
+            ManagementFactory.getRuntimeMXBean().getUptime());
         
         // Add shutdown hook to properly close database connection
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -31,20 +68,112 @@ public class JavalinMain {
             Database.close();
             app.stop();
         }));
+        
+        // -Dlibrary.exitAfterStartup=true serves one request and exits, used to record the CDS archive;
+        // the shutdown hook above closes the pools and the server on that exit as well
+        if (Boolean.getBoolean("library.exitAfterStartup")) {
+            exitAfterFirstRequest();
+        }
     }
     
+    /**
+     * Sends one request to the running server and exits, so all classes of a typical request get loaded
+     */
+    private static void exitAfterFirstRequest() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/books?limit=1")).build();
+            HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (Exception e) {
+            logger.warn("Training request failed", e);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Creates the server with all routes, without starting it
+     * @param virtualThreads true to run handlers on virtual threads instead of the platform thread pool
+     * @return configured Javalin instance
+     */
+    public static Javalin createApp(boolean virtualThreads) {
+        Javalin app = Javalin.create(config -> {
+            config.requestLogger.http(JavalinMain::recordRequest);
+            config.compression.custom(createCompressionStrategy());
+            if (virtualThreads) {
+                config.jetty.server(JavalinMain::createVirtualThreadServer);
+            }
+        });
+
+        // GET /books endpoint with optional limit and after (cursor) query parameters
+        app.get("/books", JavalinMain::getBooks);
+        app.get("/books/search", JavalinMain::searchBooks);
+        app.get("/books/export", JavalinMain::exportBooks);
+        app.post("/books", JavalinMain::ingestBooks);
+        app.get("/books/isbn/{isbn}", JavalinMain::getBookByIsbn);
+        app.get("/books/{id}", JavalinMain::getBookById);
+        app.post("/users/bulk", JavalinMain::importUsers);
+        app.get("/stats/cache", JavalinMain::getCacheStats);
+        app.get("/stats/pool", JavalinMain::getPoolStats);
+        app.get("/metrics", JavalinMain::getMetrics);
+        return app;
+    }
+
+    /**
+     * Gzip for clients that send Accept-Encoding: gzip, only for bodies of at least library.compression.minSize bytes
+     * Brotli and deflate are left out: Javalin has no deflate support and brotli needs a native library
+     */
+    private static CompressionStrategy createCompressionStrategy() {
+        CompressionStrategy strategy = new CompressionStrategy(null,
+            new Gzip(Integer.getInteger("library.compression.level", 6)));
+        strategy.setMinSizeForCompression(Integer.getInteger("library.compression.minSize", 1500));
+        return strategy;
+    }
+
+    /**
+     * Creates a Jetty server whose thread pool hands blocking work to virtual threads
+     * Selectors and acceptors stay on platform threads; concurrent database work is capped by Database itself
+     */
+    private static Server createVirtualThreadServer() {
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setName("JettyServerThreadPool-virtual");
+        if (VirtualThreads.areSupported()) {
+            threadPool.setUseVirtualThreads(true);
+        } else {
+            logger.warn("Virtual threads are not supported by this JVM (Java 21+ required), using platform threads");
+        }
+        return new Server(threadPool);
+    }
+
     /**
      * Handler for GET /books endpoint
-     * Supports optional 'limit' query parameter
+     * Supports optional 'limit' query parameter, cursor paging with 'after'
+     * and streaming of the whole result with 'stream=true'
+     * 'fields=id,title' selects the attributes of each book, only these columns are read
+     * Responds with JSON, or CBOR or Smile if the Accept header asks for it
      */
     static void getBooks(Context ctx) {
         try {
+            if (ctx.queryParam("after") != null) {
+                getBooksPage(ctx);
+                return;
+            }
+            if (ctx.queryParam("fields") != null) {
+                streamBookFields(ctx);
+                return;
+            }
+            if ("true".equalsIgnoreCase(ctx.queryParam("stream"))) {
+                streamBooks(ctx);
+                return;
+            }
+
             String limitParam = ctx.queryParam("limit");
             List<Book> books;
             
             if (limitParam != null && !limitParam.isEmpty()) {
                 try {
                     int limit = Integer.parseInt(limitParam);
+                    if (notModified(ctx, "limit=" + Math.max(limit, 0))) {
+                        return;
+                    }
                     books = Database.getAllBooks(limit);
                     logger.info("Retrieved {} books with limit {}", books.size(), limit);
                 } catch (NumberFormatException e) {
@@ -52,17 +181,485 @@ public class JavalinMain {
                     return;
                 }
             } else {
+                if (notModified(ctx, "limit=0")) {
+                    return;
+                }
                 books = Database.getAllBooks();
                 logger.info("Retrieved {} books without limit", books.size());
             }
             
-            ctx.json(books);
+            respond(ctx, books);
         } catch (Exception e) {
-            logger.error("Error retrieving books", e);
-            ctx.status(500).json(new ErrorResponse("Internal server error"));
+            serverError(ctx, "Error retrieving books", e);
         }
     }
+
+    /**
+     * Answers 500 Internal Server Error, or aborts the connection if the body is already being sent
+     * Once a streamed body has started the status cannot be changed any more and an appended error body
+     * would pass the truncated response off as a complete 200, so the client gets a broken connection instead
+     * @param message logged together with the exception
+     */
+    static void serverError(Context ctx, String message, Exception e) {
+        logger.error(message, e);
+        if (ctx.res().isCommitted() || ctx.attribute(BODY_STARTED) != null) {
+            Request request = Request.getBaseRequest(ctx.req());
+            if (request != null) {
+                request.getHttpChannel().abort(e);
+            }
+            return;
+        }
+        ctx.res().resetBuffer();
+        ctx.status(500).json(new ErrorResponse("Internal server error"));
+    }
     
+    /**
+     * Streams the books as an array in the negotiated format directly to the response
+     * Rows are written while they are read, so neither the entity list nor the body is held in memory
+     */
+    private static void streamBooks(Context ctx) throws IOException {
+        int limit = 0;
+        String limitParam = ctx.queryParam("limit");
+        if (limitParam != null && !limitParam.isEmpty()) {
+            try {
+                limit = Integer.parseInt(limitParam);
+            } catch (NumberFormatException e) {
+                ctx.status(400).json(new ErrorResponse("Invalid limit parameter: must be a number"));
+                return;
+            }
+        }
+
+        if (notModified(ctx, "stream,limit=" + Math.max(limit, 0))) {
+            return;
+        }
+        ResponseFormat format = ResponseFormat.forAccept(ctx.header("Accept"));
+        ctx.contentType(format.getContentType());
+        ctx.attribute(BODY_STARTED, true);
+        JsonGenerator generator = format.getMapper().getFactory().createGenerator(ctx.outputStream());
+        generator.writeStartArray();
+        long count = Database.streamBooks(limit, book -> {
+            try {
+                generator.writeObject(book);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.writeEndArray();
+        // Closed only on success: closing after a failure would end the array and make the body look complete
+        generator.close();
+        logger.info("Streamed {} books with limit {}", count, limit);
+    }
+
+    /**
+     * Streams only the attributes named in the 'fields' query parameter
+     * The columns are read as scalars and written straight to the response, without Book entities
+     */
+    private static void streamBookFields(Context ctx) throws IOException {
+        List<String> fields = new ArrayList<>();
+        for (String field : ctx.queryParam("fields").split(",")) {
+            field = field.trim();
+            if (!Database.BOOK_FIELDS.contains(field)) {
+                ctx.status(400).json(new ErrorResponse("Invalid fields parameter: allowed are " + Database.BOOK_FIELDS));
+                return;
+            }
+            if (!fields.contains(field)) {
+                fields.add(field);
+            }
+        }
+        int limit = 0;
+        String limitParam = ctx.queryParam("limit");
+        if (limitParam != null && !limitParam.isEmpty()) {
+            try {
+                limit = Integer.parseInt(limitParam);
+            } catch (NumberFormatException e) {
+                ctx.status(400).json(new ErrorResponse("Invalid limit parameter: must be a number"));
+                return;
+            }
+        }
+
+        if (notModified(ctx, "fields=" + String.join(",", fields) + ",limit=" + Math.max(limit, 0))) {
+            return;
+        }
+        ResponseFormat format = ResponseFormat.forAccept(ctx.header("Accept"));
+        ctx.contentType(format.getContentType());
+        ctx.attribute(BODY_STARTED, true);
+        JsonGenerator generator = format.getMapper().getFactory().createGenerator(ctx.outputStream());
+        generator.writeStartArray();
+        long count = Database.streamBookFields(fields, limit, values -> {
+            try {
+                generator.writeStartObject();
+                for (int i = 0; i < values.length; i++) {
+                    generator.writeFieldName(fields.get(i));
+                    generator.writeObject(values[i]);
+                }
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.writeEndArray();
+        generator.close();
+        logger.info("Streamed fields {} of {} books with limit {}", fields, count, limit);
+    }
+
+    /**
+     * Streams the whole catalogue as TSV in the format importBooks reads, e.g. to copy it to another instance
+     */
+    static void exportBooks(Context ctx) {
+        try {
+            if (notModified(ctx, "export")) {
+                return;
+            }
+            ctx.contentType("text/tab-separated-values; charset=utf-8");
+            ctx.header("Content-Disposition", "attachment; filename=\"books.tsv\"");
+            ctx.attribute(BODY_STARTED, true);
+            long count = Database.exportBooks(Channels.newChannel(ctx.outputStream()));
+            logger.info("Exported {} books", count);
+        } catch (Exception e) {
+            serverError(ctx, "Error exporting books", e);
+        }
+    }
+
+    /**
+     * Returns one page of books after the given cursor
+     * Responds with the books and the cursor of the next page, which is null on the last page
+     */
+    private static void getBooksPage(Context ctx) {
+        int after;
+        int limit = DEFAULT_PAGE_SIZE;
+        try {
+            after = Integer.parseInt(ctx.queryParam("after"));
+            String limitParam = ctx.queryParam("limit");
+            if (limitParam != null && !limitParam.isEmpty()) {
+                limit = Integer.parseInt(limitParam);
+            }
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(new ErrorResponse("Invalid after or limit parameter: must be a number"));
+            return;
+        }
+        if (limit <= 0) {
+            limit = DEFAULT_PAGE_SIZE;
+        } else if (limit > MAX_PAGE_SIZE) {
+            limit = MAX_PAGE_SIZE;
+        }
+
+        if (notModified(ctx, "after=" + after + ",limit=" + limit)) {
+            return;
+        }
+        List<Book> books = Database.getBooksAfter(after, limit);
+        Integer next = books.size() == limit ? books.get(books.size() - 1).getId() : null;
+        logger.info("Retrieved {} books after id {}", books.size(), after);
+        respond(ctx, new BookPage(books, next));
+    }
+
+    /**
+     * Writes a response body in the format negotiated from the Accept header
+     */
+    private static void respond(Context ctx, Object body) throws IOException {
+        ResponseFormat format = ResponseFormat.forAccept(ctx.header("Accept"));
+        ctx.contentType(format.getContentType()).result(format.getMapper().writeValueAsBytes(body));
+    }
+
+    /**
+     * Sets the ETag of a /books variant and answers 304 Not Modified if the client already has it
+     * The tag is weak: the gzip and identity encodings of a body share it, which a strong tag must not
+     * The tag is derived from the persisted catalogue version, so no serialization is needed to check it,
+     * and imports of other processes change it as well; the version is cached for cache.catalogueVersion.ttlMs
+     * @param variant distinguishes responses of different limits and pages
+     * @return true if 304 was sent and the handler must not write a body
+     */
+    static boolean notModified(Context ctx, String variant) {
+        ResponseFormat format = ResponseFormat.forAccept(ctx.header("Accept"));
+        String etag = "W/\"" + Long.toString(Database.getCatalogueVersion(), 36) + "-" + variant + "-"
+            + format.name().toLowerCase() + "\"";
+        ctx.header("ETag", etag);
+        ctx.header("Cache-Control", "no-cache");
+        ctx.header("Vary", "Accept, Accept-Encoding");
+
+        String ifNoneMatch = ctx.header("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // If-None-Match uses the weak comparison, the W/ prefix is ignored on both sides
+        String opaqueTag = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(opaqueTag) || candidate.equals("*")) {
+                ctx.status(304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One page of books together with the cursor for the following page
+     */
+    private static class BookPage {
+        private final List<Book> books;
+        private final Integer next;
+
+        public BookPage(List<Book> books, Integer next) {
+            this.books = books;
+            this.next = next;
+        }
+
+        public List<Book> getBooks() {
+            return books;
+        }
+
+        public Integer getNext() {
+            return next;
+        }
+    }
+
+    /**
+     * Handler for GET /books/{id} endpoint
+     * Answers from the in-memory primary index without a database round trip
+     */
+    static void getBookById(Context ctx) {
+        int id;
+        try {
+            id = Integer.parseInt(ctx.pathParam("id"));
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(new ErrorResponse("Invalid id: must be a number"));
+            return;
+        }
+        respondWithBook(ctx, Database.findBookById(id));
+    }
+
+    /**
+     * Handler for GET /books/isbn/{isbn} endpoint
+     * Answers from the in-memory primary index without a database round trip
+     */
+    static void getBookByIsbn(Context ctx) {
+        respondWithBook(ctx, Database.findBookByIsbn(ctx.pathParam("isbn")));
+    }
+
+    private static void respondWithBook(Context ctx, Book book) {
+        if (book == null) {
+            ctx.status(404).json(new ErrorResponse("Book not found"));
+        } else {
+            ctx.json(book);
+        }
+    }
+
+    /**
+     * Handler for GET /books/search endpoint
+     * Requires the 'q' query parameter, supports 'limit' and 'offset' for paging
+     */
+    static void searchBooks(Context ctx) {
+        String query = ctx.queryParam("q");
+        if (query == null || query.isBlank()) {
+            ctx.status(400).json(new ErrorResponse("Missing query parameter q"));
+            return;
+        }
+
+        int offset = 0;
+        int limit = DEFAULT_PAGE_SIZE;
+        try {
+            String offsetParam = ctx.queryParam("offset");
+            if (offsetParam != null && !offsetParam.isEmpty()) {
+                offset = Math.max(Integer.parseInt(offsetParam), 0);
+            }
+            String limitParam = ctx.queryParam("limit");
+            if (limitParam != null && !limitParam.isEmpty()) {
+                limit = Integer.parseInt(limitParam);
+            }
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(new ErrorResponse("Invalid offset or limit parameter: must be a number"));
+            return;
+        }
+        if (limit <= 0) {
+            limit = DEFAULT_PAGE_SIZE;
+        } else if (limit > MAX_PAGE_SIZE) {
+            limit = MAX_PAGE_SIZE;
+        }
+
+        try {
+            BookSearchIndex.SearchResult result = Database.searchBooks(query, offset, limit);
+            logger.info("Search '{}' matched {} books", query, result.getTotal());
+            ctx.json(result);
+        } catch (Exception e) {
+            serverError(ctx, "Error searching books", e);
+        }
+    }
+
+    /**
+     * Handler for POST /users/bulk endpoint
+     * Reads TSV lines (firstname, lastname, dateOfBirth, email, password) from the request body as a stream
+     * and responds with the number of inserted users and an error per rejected line
+     */
+    static void importUsers(Context ctx) {
+        try (Reader reader = new InputStreamReader(ctx.bodyInputStream(), StandardCharsets.UTF_8)) {
+            UserImporter.ImportSummary summary = UserImporter.importUsers(reader);
+            logger.info("Bulk import inserted {} users, rejected {} lines", summary.getInserted(), summary.getRejected());
+            ctx.json(summary);
+        } catch (Exception e) {
+            serverError(ctx, "Error importing users", e);
+        }
+    }
+
+    /**
+     * Handler for POST /books endpoint
+     * Reads newline-delimited JSON books (application/x-ndjson) or TSV lines in the importBooks format
+     * (text/tab-separated-values) from the request body as a stream and writes them in batches;
+     * responds with the number of inserted, updated and rejected rows and the ingest rate
+     */
+    static void ingestBooks(Context ctx) {
+        String contentType = ctx.contentType() != null ? ctx.contentType().split(";", 2)[0].trim().toLowerCase() : "";
+        try (InputStream body = ctx.bodyInputStream()) {
+            BookIngester.IngestSummary summary;
+            switch (contentType) {
+                case "application/x-ndjson":
+                case "application/jsonl":
+                    summary = BookIngester.ingestNdjson(body);
+                    break;
+                case "text/tab-separated-values":
+                    summary = BookIngester.ingestTsv(body);
+                    break;
+                default:
+                    ctx.status(415).json(new ErrorResponse(
+                        "Unsupported content type: use application/x-ndjson or text/tab-separated-values"));
+                    return;
+            }
+            logger.info("Ingest inserted {} and updated {} books, rejected {} rows ({} rows/s)", summary.getInserted(),
+                summary.getUpdated(), summary.getRejected(), summary.getRowsPerSecond());
+            ctx.json(summary);
+        } catch (Exception e) {
+            serverError(ctx, "Error ingesting books", e);
+        }
+    }
+
+    /**
+     * Handler for GET /stats/cache endpoint
+     * Reports the hit and miss counters of the catalogue cache and the Hibernate caches
+     */
+    static void getCacheStats(Context ctx) {
+        BookCache cache = Database.getBookCache();
+        Map<String, Object> catalogue = new LinkedHashMap<>();
+        catalogue.put("hits", cache.getHits());
+        catalogue.put("misses", cache.getMisses());
+        catalogue.put("cachedRows", cache.getCachedRows());
+        catalogue.put("version", cache.getVersion());
+
+        Statistics statistics = Database.getStatistics();
+        Map<String, Object> secondLevel = new LinkedHashMap<>();
+        secondLevel.put("hits", statistics.getSecondLevelCacheHitCount());
+        secondLevel.put("misses", statistics.getSecondLevelCacheMissCount());
+        secondLevel.put("puts", statistics.getSecondLevelCachePutCount());
+
+        Map<String, Object> queries = new LinkedHashMap<>();
+        queries.put("hits", statistics.getQueryCacheHitCount());
+        queries.put("misses", statistics.getQueryCacheMissCount());
+        queries.put("puts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("catalogue", catalogue);
+        stats.put("secondLevel", secondLevel);
+        stats.put("queries", queries);
+        ctx.json(stats);
+    }
+
+    /**
+     * Handler for GET /stats/pool endpoint
+     * Reports the connection counts and acquire latencies of the connection pool
+     */
+    static void getPoolStats(Context ctx) {
+        HikariPoolMXBean pool = Database.getPool();
+        PoolMetrics metrics = Database.getPoolMetrics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", pool.getActiveConnections());
+        stats.put("idle", pool.getIdleConnections());
+        stats.put("total", pool.getTotalConnections());
+        stats.put("pending", pool.getThreadsAwaitingConnection());
+        stats.put("acquireCount", metrics.getAcquireCount());
+        stats.put("acquireMillisAverage", metrics.getAcquireMillisAverage());
+        stats.put("acquireMillisMax", metrics.getAcquireMillisMax());
+        stats.put("timeouts", metrics.getTimeouts());
+        stats.put("replicas", Database.getReplicaStatus());
+        ctx.json(stats);
+    }
+
+    /**
+     * Records the duration of a finished request under its route pattern
+     * The pattern rather than the actual path is used, so /books/1 and /books/2 share one histogram
+     */
+    static void recordRequest(Context ctx, Float executionTimeMs) {
+        String route;
+        try {
+            route = ctx.endpointHandlerPath();
+        } catch (IllegalStateException e) {
+            route = "";
+        }
+        if (route.isEmpty()) {
+            route = "unmatched";
+        }
+        requestMetrics.record((long) (executionTimeMs * 1_000_000), ctx.method().name(), route,
+            String.valueOf(ctx.statusCode()));
+        if (firstRequest.compareAndSet(true, false)) {
+            logger.info("First request served {} ms after JVM start", ManagementFactory.getRuntimeMXBean().getUptime());
+        }
+    }
+
+    /**
+     * Handler for GET /metrics endpoint
+     * Reports request and Database latencies, Hibernate statistics and the pool state in the Prometheus text format
+     */
+    static void getMetrics(Context ctx) {
+        StringBuilder out = new StringBuilder();
+        requestMetrics.writeTo(out);
+        Database.getMetrics().writeTo(out);
+
+        Statistics statistics = Database.getStatistics();
+        Metrics.writeCounter(out, "hibernate_query_executions_total", "Queries executed",
+            statistics.getQueryExecutionCount());
+        Metrics.writeGauge(out, "hibernate_query_execution_max_seconds", "Slowest query execution",
+            statistics.getQueryExecutionMaxTime() / 1000.0);
+        Metrics.writeCounter(out, "hibernate_entity_loads_total", "Entities loaded",
+            statistics.getEntityLoadCount());
+        Metrics.writeCounter(out, "hibernate_entity_fetches_total", "Entities fetched lazily",
+            statistics.getEntityFetchCount());
+        Metrics.writeCounter(out, "hibernate_entity_inserts_total", "Entities inserted",
+            statistics.getEntityInsertCount());
+        Metrics.writeCounter(out, "hibernate_entity_updates_total", "Entities updated",
+            statistics.getEntityUpdateCount());
+        Metrics.writeCounter(out, "hibernate_flushes_total", "Session flushes",
+            statistics.getFlushCount());
+        Metrics.writeCounter(out, "hibernate_sessions_opened_total", "Sessions opened",
+            statistics.getSessionOpenCount());
+        Metrics.writeCounter(out, "hibernate_transactions_total", "Transactions completed",
+            statistics.getTransactionCount());
+        Metrics.writeCounter(out, "hibernate_statements_prepared_total", "JDBC statements prepared",
+            statistics.getPrepareStatementCount());
+        Metrics.writeCounter(out, "hibernate_second_level_cache_hits_total", "Second-level cache hits",
+            statistics.getSecondLevelCacheHitCount());
+        Metrics.writeCounter(out, "hibernate_second_level_cache_misses_total", "Second-level cache misses",
+            statistics.getSecondLevelCacheMissCount());
+        Metrics.writeCounter(out, "hibernate_query_cache_hits_total", "Query cache hits",
+            statistics.getQueryCacheHitCount());
+        Metrics.writeCounter(out, "hibernate_query_cache_misses_total", "Query cache misses",
+            statistics.getQueryCacheMissCount());
+
+        HikariPoolMXBean pool = Database.getPool();
+        PoolMetrics poolMetrics = Database.getPoolMetrics();
+        Metrics.writeGauge(out, "library_pool_connections_active", "Connections in use",
+            pool.getActiveConnections());
+        Metrics.writeGauge(out, "library_pool_connections_idle", "Idle connections",
+            pool.getIdleConnections());
+        Metrics.writeGauge(out, "library_pool_connections_pending", "Threads waiting for a connection",
+            pool.getThreadsAwaitingConnection());
+        Metrics.writeCounter(out, "library_pool_acquire_total", "Connections acquired",
+            poolMetrics.getAcquireCount());
+        Metrics.writeCounter(out, "library_pool_timeouts_total", "Connection acquire timeouts",
+            poolMetrics.getTimeouts());
+
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(out.toString());
+    }
+
     /**
      * Simple error response class for JSON serialization
      */
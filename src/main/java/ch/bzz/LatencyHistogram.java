@@ -0,0 +1,76 @@
+package ch.bzz;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with exponentially growing buckets
+ * Buckets grow by 25 % from 10 microseconds to 100 seconds, so quantiles are exact to within one bucket
+ */
+public class LatencyHistogram {
+    private static final long[] BOUNDS = createBounds();
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    private static long[] createBounds() {
+        long[] bounds = new long[128];
+        int size = 0;
+        for (double bound = 10_000; bound < 100_000_000_000.0; bound *= 1.25) {
+            bounds[size++] = (long) bound;
+        }
+        return Arrays.copyOf(bounds, size);
+    }
+
+    /**
+     * Records one observation
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int index = Arrays.binarySearch(BOUNDS, nanos);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        buckets.incrementAndGet(index);
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Estimates a quantile by interpolating inside the bucket that holds it
+     * @param quantile between 0 and 1, e.g. 0.99 for p99
+     * @return estimated duration in nanoseconds, 0 if nothing was recorded
+     */
+    public long getQuantileNanos(double quantile) {
+        long[] snapshot = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (seen + snapshot[i] >= rank) {
+                long lower = i == 0 ? 0 : BOUNDS[i - 1];
+                long upper = i < BOUNDS.length ? BOUNDS[i] : lower;
+                return lower + (upper - lower) * (rank - seen) / snapshot[i];
+            }
+            seen += snapshot[i];
+        }
+        return BOUNDS[BOUNDS.length - 1];
+    }
+}
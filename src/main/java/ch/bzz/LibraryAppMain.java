@@ -17,6 +17,7 @@ public class LibraryAppMain {
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         CommandHandler commandHandler = new CommandHandler();
+        Database.startBootstrap();
         
         log.info("Willkommen zur Bibliotheks-App!");
         log.info("Geben Sie 'help' ein, um alle verfügbaren Befehle zu sehen.");
@@ -59,6 +60,20 @@ public class LibraryAppMain {
                         commandHandler.importBooks(parts[1]);
                     }
                     break;
+                case "exportbooks":
+                    if (parts.length < 2) {
+                        log.warn("Bitte geben Sie den Dateipfad an: exportBooks <FILE_PATH>");
+                    } else {
+                        commandHandler.exportBooks(parts[1]);
+                    }
+                    break;
+                case "importusers":
+                    if (parts.length < 2) {
+                        log.warn("Bitte geben Sie den Dateipfad an: importUsers <FILE_PATH>");
+                    } else {
+                        commandHandler.importUsers(parts[1]);
+                    }
+                    break;
                 case "createuser":
                     if (parts.length < 2) {
                         log.warn("Bitte geben Sie alle Benutzerinformationen an: createUser <firstname> <lastname> <dateOfBirth> <email> <password>");
@@ -72,7 +87,7 @@ public class LibraryAppMain {
                     Database.close();
                     return;
                 default:
-                    log.warn("Unbekannter Befehl: " + command);
+                    log.warn("Unbekannter Befehl: {}", command);
                     log.info("Geben Sie 'help' ein, um alle verfügbaren Befehle zu sehen.");
             }
         }
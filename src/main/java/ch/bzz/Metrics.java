@@ -0,0 +1,179 @@
+package ch.bzz;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Family of latency histograms sharing one metric name, one histogram per combination of label values
+ * Written in the Prometheus text format as a summary with p50, p95 and p99
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private final String name;
+    private final String help;
+    private final String[] labelNames;
+    private final Map<List<String>, LatencyHistogram> series = new ConcurrentHashMap<>();
+    private long slowThresholdNanos = -1;
+    private ObjLongConsumer<String[]> slowListener;
+
+    /**
+     * Constructor for Metrics
+     * @param name metric name, e.g. library_http_request_seconds
+     * @param help description written as HELP line
+     * @param labelNames names of the labels every observation carries
+     */
+    public Metrics(String name, String help, String... labelNames) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+    }
+
+    /**
+     * Passes observations of at least a threshold to a listener, e.g. a slow-query log
+     * Meant to be called once while the family is set up
+     * @param thresholdNanos minimum duration that is reported, negative to report nothing
+     * @param listener receives the label values and the duration
+     * @return this Metrics instance
+     */
+    public Metrics reportSlowerThan(long thresholdNanos, ObjLongConsumer<String[]> listener) {
+        this.slowThresholdNanos = thresholdNanos;
+        this.slowListener = thresholdNanos < 0 ? null : listener;
+        return this;
+    }
+
+    /**
+     * Records one observation
+     * @param nanos duration in nanoseconds
+     * @param labelValues values in the order of the label names
+     */
+    public void record(long nanos, String... labelValues) {
+        getHistogram(labelValues).record(nanos);
+        reportIfSlow(nanos, labelValues);
+    }
+
+    /**
+     * Starts a timer that records its duration when closed, for use in try-with-resources
+     * @param labelValues values in the order of the label names
+     * @return running Timer
+     */
+    public Timer start(String... labelValues) {
+        return new Timer(this, getHistogram(labelValues), labelValues);
+    }
+
+    private void reportIfSlow(long nanos, String[] labelValues) {
+        if (slowListener != null && nanos >= slowThresholdNanos) {
+            slowListener.accept(labelValues, nanos);
+        }
+    }
+
+    /**
+     * Gets the histogram for a combination of label values, creating it on first use
+     * @param labelValues values in the order of the label names
+     * @return LatencyHistogram of these label values
+     */
+    public LatencyHistogram getHistogram(String... labelValues) {
+        if (labelValues.length != labelNames.length) {
+            throw new IllegalArgumentException("Expected " + labelNames.length + " label values for " + name);
+        }
+        return series.computeIfAbsent(Arrays.asList(labelValues), key -> new LatencyHistogram());
+    }
+
+    /**
+     * Writes all histograms of this family in the Prometheus text format
+     * @param out receives the HELP, TYPE and sample lines
+     */
+    public void writeTo(StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        series.forEach((labelValues, histogram) -> {
+            String labels = formatLabels(labelValues);
+            for (double quantile : QUANTILES) {
+                out.append(name).append('{').append(labels);
+                if (!labels.isEmpty()) {
+                    out.append(',');
+                }
+                out.append("quantile=\"").append(quantile).append("\"} ")
+                    .append(toSeconds(histogram.getQuantileNanos(quantile))).append('\n');
+            }
+            String braced = labels.isEmpty() ? "" : "{" + labels + "}";
+            out.append(name).append("_sum").append(braced).append(' ')
+                .append(toSeconds(histogram.getSumNanos())).append('\n');
+            out.append(name).append("_count").append(braced).append(' ')
+                .append(histogram.getCount()).append('\n');
+        });
+    }
+
+    private String formatLabels(List<String> labelValues) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(labelNames[i]).append("=\"").append(escape(labelValues.get(i))).append('"');
+        }
+        return labels.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static double toSeconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    /**
+     * Writes a single counter in the Prometheus text format
+     * @param out receives the HELP, TYPE and sample lines
+     * @param name metric name, should end with _total
+     * @param help description written as HELP line
+     * @param value current count
+     */
+    public static void writeCounter(StringBuilder out, String name, String help, long value) {
+        writeSample(out, name, help, "counter", value);
+    }
+
+    /**
+     * Writes a single gauge in the Prometheus text format
+     * @param out receives the HELP, TYPE and sample lines
+     * @param name metric name
+     * @param help description written as HELP line
+     * @param value current value
+     */
+    public static void writeGauge(StringBuilder out, String name, String help, double value) {
+        writeSample(out, name, help, "gauge", value);
+    }
+
+    private static void writeSample(StringBuilder out, String name, String help, String type, Number value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Measures the time until it is closed
+     */
+    public static class Timer implements AutoCloseable {
+        private final Metrics metrics;
+        private final LatencyHistogram histogram;
+        private final String[] labelValues;
+        private final long start = System.nanoTime();
+
+        private Timer(Metrics metrics, LatencyHistogram histogram, String[] labelValues) {
+            this.metrics = metrics;
+            this.histogram = histogram;
+            this.labelValues = labelValues;
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - start;
+            histogram.record(nanos);
+            metrics.reportIfSlow(nanos, labelValues);
+        }
+    }
+}
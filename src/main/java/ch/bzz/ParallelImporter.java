@@ -0,0 +1,342 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports books from one or many TSV files in parallel
+ * Files are cut into segments at line boundaries, the segments are parsed on a fork/join pool
+ * and written to the database in file and segment order
+ */
+public class ParallelImporter {
+    private static final Logger log = LoggerFactory.getLogger(ParallelImporter.class);
+
+    /** Target size of one parse segment */
+    static final long SEGMENT_SIZE = 1024L * 1024;
+    /** Number of books written per transaction */
+    private static final int WRITE_CHUNK_SIZE = 5000;
+    /**
+     * Estimated heap bytes per byte of parsed TSV: the Book objects, their strings and the chunk lists
+     * take several times the size of the raw line
+     */
+    private static final int HEAP_BYTES_PER_FILE_BYTE = 5;
+
+    /**
+     * Imports all files matching a path, directory or glob pattern
+     * @param pattern a file, a directory (all *.tsv files in it) or a glob such as data/*.tsv
+     * @return per-file summary in import order
+     */
+    public static List<FileSummary> importBooks(String pattern) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long budget = Long.parseLong(Database.getSetting("import.memoryBudgetMb",
+            String.valueOf(Runtime.getRuntime().maxMemory() / 4 / (1024 * 1024)))) * 1024 * 1024;
+        return importBooks(pattern, SEGMENT_SIZE, parallelism, window(budget, SEGMENT_SIZE, parallelism),
+            ParallelImporter::writeInChunks);
+    }
+
+    /**
+     * Number of parsed segments that fit into the memory budget, at least 1
+     * More than two segments per parser thread do not speed anything up, as the single writer is the bottleneck
+     * @param budget heap bytes the parsed segments waiting for the writer may take
+     * @param segmentSize target size of one segment
+     * @param parallelism number of parser threads
+     * @return maximum number of segments parsed ahead of the writer
+     */
+    static int window(long budget, long segmentSize, int parallelism) {
+        long segments = budget / (segmentSize * HEAP_BYTES_PER_FILE_BYTE);
+        return (int) Math.max(1, Math.min(segments, parallelism * 2L));
+    }
+
+    /**
+     * Imports all files matching a pattern, parsing segments in parallel and writing them in order
+     * @param pattern a file, a directory or a glob pattern
+     * @param segmentSize target size of one parse segment
+     * @param parallelism number of parser threads
+     * @param window maximum number of segments parsed ahead of the writer
+     * @param writer receives the books of each segment, in file and segment order, and returns how many of
+     *               them were committed
+     * @return per-file summary in import order
+     */
+    static List<FileSummary> importBooks(String pattern, long segmentSize, int parallelism, int window,
+                                         ToLongFunction<List<Book>> writer) {
+        List<Path> files;
+        try {
+            files = resolveFiles(pattern);
+        } catch (IOException | InvalidPathException e) {
+            log.error("Error resolving import files for {}: {}", pattern, e.getMessage(), e);
+            return List.of();
+        }
+
+        Map<Path, FileSummary> summaries = new LinkedHashMap<>();
+        List<Segment> segments = new ArrayList<>();
+        for (Path file : files) {
+            summaries.put(file, new FileSummary(file));
+            try {
+                for (long[] range : splitAtLineBoundaries(file, segmentSize)) {
+                    segments.add(new Segment(file, range[0], range[1]));
+                }
+            } catch (IOException e) {
+                log.error("Error reading file {}: {}", file, e.getMessage(), e);
+                summaries.get(file).failed = true;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // Parse at most a window of segments ahead of the writer so memory stays within the budget
+            Deque<ForkJoinTask<SegmentResult>> inFlight = new ArrayDeque<>();
+            Iterator<Segment> pending = segments.iterator();
+            while (pending.hasNext() || !inFlight.isEmpty()) {
+                while (pending.hasNext() && inFlight.size() < window) {
+                    inFlight.add(pool.submit(new ParseTask(pending.next())));
+                }
+                SegmentResult result = inFlight.poll().join();
+                FileSummary summary = summaries.get(result.segment.file);
+                summary.accepted += result.accepted;
+                summary.rejected += result.rejected;
+                summary.failed |= result.failed;
+                long written = writer.applyAsLong(result.books);
+                summary.written += written;
+                summary.writeFailed += result.books.size() - written;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new ArrayList<>(summaries.values());
+    }
+
+    /**
+     * Resolves the files to import
+     * @param pattern a file, a directory or a glob pattern
+     * @return matching regular files, sorted by path
+     * @throws IOException if a directory cannot be listed
+     * @throws InvalidPathException if the pattern or its directory part is not a valid path
+     */
+    static List<Path> resolveFiles(String pattern) throws IOException {
+        if (!containsGlob(pattern)) {
+            Path path = Path.of(pattern);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> entries = Files.list(path)) {
+                    return entries.filter(Files::isRegularFile)
+                        .filter(p -> p.getFileName().toString().toLowerCase().endsWith(".tsv"))
+                        .sorted()
+                        .collect(Collectors.toList());
+                }
+            }
+            return List.of(path);
+        }
+
+        // Walk from the deepest directory that contains no glob characters; the pattern itself is never
+        // turned into a Path, as * and ? are not allowed in Windows paths
+        int firstGlob = 0;
+        while (!isGlobChar(pattern.charAt(firstGlob))) {
+            firstGlob++;
+        }
+        int separator = Math.max(pattern.lastIndexOf('/', firstGlob), pattern.lastIndexOf(File.separatorChar, firstGlob));
+        boolean relative = separator < 0;
+        Path base = relative ? Path.of(".") : Path.of(pattern.substring(0, separator + 1));
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> entries = Files.walk(base)) {
+            return entries.filter(Files::isRegularFile)
+                .filter(p -> matcher.matches(relative ? base.relativize(p) : p))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean containsGlob(String value) {
+        return value.chars().anyMatch(ParallelImporter::isGlobChar);
+    }
+
+    private static boolean isGlobChar(int c) {
+        return c == '*' || c == '?' || c == '[' || c == '{';
+    }
+
+    /**
+     * Cuts a file into byte ranges of roughly segmentSize that each end after a line break
+     * @param file the file to split
+     * @param segmentSize target size of one range
+     * @return list of [start, end) ranges covering the whole file
+     * @throws IOException if the file cannot be read
+     */
+    static List<long[]> splitAtLineBoundaries(Path file, long segmentSize) throws IOException {
+        return splitAtLineBoundaries(file, 0, segmentSize);
+    }
+
+    /**
+     * Cuts the rest of a file, starting at a line boundary, into byte ranges that each end after a line break
+     * @param file the file to split
+     * @param from offset of the first range, 0 or the start of a line
+     * @param segmentSize target size of one range
+     * @return list of [start, end) ranges covering the file from the given offset
+     * @throws IOException if the file cannot be read
+     */
+    static List<long[]> splitAtLineBoundaries(Path file, long from, long segmentSize) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long start = from;
+            while (start < size) {
+                long end = nextLineStart(channel, buffer, start + segmentSize, size);
+                ranges.add(new long[] {start, end});
+                start = end;
+            }
+        }
+        return ranges;
+    }
+
+    private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long from, long size) throws IOException {
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Writes books in transactions of WRITE_CHUNK_SIZE rows
+     * A failed chunk is rolled back and logged, the following chunks are still written
+     * @param books books of one segment
+     * @return number of books in committed chunks
+     */
+    private static long writeInChunks(List<Book> books) {
+        long written = 0;
+        for (int from = 0; from < books.size(); from += WRITE_CHUNK_SIZE) {
+            List<Book> chunk = books.subList(from, Math.min(from + WRITE_CHUNK_SIZE, books.size()));
+            try {
+                Database.saveBooksCountingUpdates(chunk);
+                written += chunk.size();
+            } catch (RuntimeException e) {
+                log.error("Error writing {} books, they were not imported: {}", chunk.size(), e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Byte range of a file that starts at a line boundary
+     */
+    private static final class Segment {
+        private final Path file;
+        private final long start;
+        private final long end;
+
+        Segment(Path file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Books parsed from one segment
+     */
+    private static final class SegmentResult {
+        private final Segment segment;
+        private final List<Book> books;
+        private final long accepted;
+        private final long rejected;
+        private final boolean failed;
+
+        SegmentResult(Segment segment, List<Book> books, long accepted, long rejected, boolean failed) {
+            this.segment = segment;
+            this.books = books;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Fork/join task parsing one segment
+     */
+    private static final class ParseTask extends RecursiveTask<SegmentResult> {
+        private final Segment segment;
+
+        ParseTask(Segment segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        protected SegmentResult compute() {
+            List<Book> books = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+                channel.position(segment.start);
+                FileHandler.ParseResult result = FileHandler.parseBooks(channel, segment.end - segment.start,
+                    segment.start == 0, FileHandler.DEFAULT_CHUNK_SIZE, books::addAll);
+                return new SegmentResult(segment, books, result.getAccepted(), result.getRejected(), false);
+            } catch (IOException e) {
+                log.error("Error reading file {}: {}", segment.file, e.getMessage(), e);
+                return new SegmentResult(segment, List.of(), 0, 0, true);
+            }
+        }
+    }
+
+    /**
+     * Number of rows accepted and rejected for one imported file, and how many of the accepted ones were written
+     */
+    public static final class FileSummary {
+        private final Path file;
+        private long accepted;
+        private long rejected;
+        private long written;
+        private long writeFailed;
+        private boolean failed;
+
+        FileSummary(Path file) {
+            this.file = file;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getWriteFailed() {
+            return writeFailed;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ch.bzz;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Collects connection acquire latencies and timeouts reported by HikariCP
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireNanosTotal = new AtomicLong();
+    private final LongAccumulator acquireNanosMax = new LongAccumulator(Math::max, 0);
+    private final AtomicLong usageMillisTotal = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.incrementAndGet();
+                acquireNanosTotal.addAndGet(elapsedAcquiredNanos);
+                acquireNanosMax.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillisTotal.addAndGet(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    public long getAcquireNanosTotal() {
+        return acquireNanosTotal.get();
+    }
+
+    /**
+     * @return average time to acquire a connection in milliseconds
+     */
+    public double getAcquireMillisAverage() {
+        long count = acquireCount.get();
+        return count == 0 ? 0 : acquireNanosTotal.get() / 1_000_000.0 / count;
+    }
+
+    /**
+     * @return longest time to acquire a connection in milliseconds
+     */
+    public double getAcquireMillisMax() {
+        return acquireNanosMax.get() / 1_000_000.0;
+    }
+
+    public long getUsageMillisTotal() {
+        return usageMillisTotal.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+}
@@ -0,0 +1,241 @@
+package ch.bzz;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DataSource handed to Hibernate that routes connections between the primary and its read replicas
+ * Connections come from the primary unless the calling thread is inside readFromReplica(); then a healthy
+ * replica is chosen round-robin. A replica that fails a health check or a connection attempt is skipped
+ * until it passes a check again, and without a healthy replica reads fall back to the primary.
+ * Replicas are not written to, keeping them in sync (streaming replication, a copied SQLite file) is up to the operator
+ */
+public class ReplicaRouter implements DataSource {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+    private static final ThreadLocal<Boolean> replicaReads = ThreadLocal.withInitial(() -> false);
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final SlowQueryLog slowQueryLog;
+    private final String healthCheckQuery;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    /**
+     * Creates the router and checks the replicas once before it is used
+     * @param primary pool of the primary database, used for all writes
+     * @param replicas pools of the read replicas, may be empty
+     * @param slowQueryLog times the statements of the connections handed out
+     * @param healthCheckQuery statement a replica must run without error to count as healthy
+     * @param healthCheckIntervalMs time between two checks of the replicas
+     */
+    public ReplicaRouter(HikariDataSource primary, List<HikariDataSource> replicas, SlowQueryLog slowQueryLog,
+                         String healthCheckQuery, long healthCheckIntervalMs) {
+        this.primary = primary;
+        this.slowQueryLog = slowQueryLog;
+        this.healthCheckQuery = healthCheckQuery;
+        for (HikariDataSource replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        if (this.replicas.isEmpty()) {
+            healthChecker = null;
+            return;
+        }
+
+        checkReplicas();
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, healthCheckIntervalMs, healthCheckIntervalMs,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Routes the connections the current thread acquires to a replica until the returned Route is closed
+     * Only for reads: a write on a replica connection would not reach the primary
+     * @return Route to close when the read is done
+     */
+    public static Route readFromReplica() {
+        boolean previous = replicaReads.get();
+        replicaReads.set(true);
+        return () -> replicaReads.set(previous);
+    }
+
+    /**
+     * Scope in which connections are taken from a replica, restores the previous routing on close
+     */
+    public interface Route extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicaReads.get()) {
+            Connection connection = replicaConnection();
+            if (connection != null) {
+                return slowQueryLog.wrap(connection);
+            }
+        }
+        return slowQueryLog.wrap(primary.getConnection());
+    }
+
+    /**
+     * Takes a connection from the next healthy replica
+     * @return connection or null if no replica is healthy or none could hand out a connection
+     */
+    private Connection replicaConnection() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs the health check query on every replica and updates its state
+     */
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(healthCheckQuery);
+                connection.rollback();
+                replica.markUp();
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            } catch (RuntimeException e) {
+                replica.markDown(e.toString());
+            }
+        }
+    }
+
+    /**
+     * Gets the health of the replicas, e.g. for the pool statistics
+     * @return one entry per replica pool with its health and connection counts
+     */
+    public List<Map<String, Object>> getReplicaStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("pool", replica.dataSource.getPoolName());
+            entry.put("healthy", replica.healthy);
+            if (replica.dataSource.getHikariPoolMXBean() != null) {
+                entry.put("active", replica.dataSource.getHikariPoolMXBean().getActiveConnections());
+                entry.put("idle", replica.dataSource.getHikariPoolMXBean().getIdleConnections());
+            }
+            status.add(entry);
+        }
+        return status;
+    }
+
+    /**
+     * Stops the health checks and closes the replica pools; the primary pool is closed by its owner
+     */
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ReplicaRouter uses the credentials of its pools");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * Pool of one replica and its last known health
+     */
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void markUp() {
+            if (!healthy) {
+                log.info("Replica {} is healthy again", dataSource.getPoolName());
+            }
+            healthy = true;
+        }
+
+        void markDown(String reason) {
+            if (healthy) {
+                log.warn("Replica {} is unavailable, reading from the primary: {}", dataSource.getPoolName(), reason);
+            }
+            healthy = false;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ch.bzz;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Body encodings the catalogue endpoints can produce, selected by the Accept header
+ * CBOR and Smile carry the same data model as JSON but are smaller and cheaper to write
+ */
+public enum ResponseFormat {
+    JSON("application/json", new ObjectMapper()),
+    CBOR("application/cbor", new ObjectMapper(new CBORFactory())),
+    SMILE("application/x-jackson-smile", new ObjectMapper(new SmileFactory()));
+
+    private final String contentType;
+    private final ObjectMapper mapper;
+
+    ResponseFormat(String contentType, ObjectMapper mapper) {
+        this.contentType = contentType;
+        this.mapper = mapper;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Picks the supported format with the highest quality in an Accept header, JSON if there is none
+     * Formats with q=0 are not acceptable; among equal qualities the one listed first wins
+     * @param accept value of the Accept header, may be null
+     * @return the negotiated format
+     */
+    public static ResponseFormat forAccept(String accept) {
+        ResponseFormat best = JSON;
+        double bestQuality = 0;
+        if (accept != null) {
+            for (String range : accept.split(",")) {
+                String[] parts = range.split(";");
+                String type = parts[0].trim();
+                double quality = quality(parts);
+                for (ResponseFormat format : values()) {
+                    if (format.contentType.equalsIgnoreCase(type) && quality > bestQuality) {
+                        best = format;
+                        bestQuality = quality;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reads the q parameter of a media range
+     * @param parts the media range split at ';', the type first
+     * @return the quality between 0 and 1, 1 if it is missing and 0 if it is malformed
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] parameter = parts[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    double quality = Double.parseDouble(parameter[1].trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,22 @@
+package ch.bzz;
+
+/**
+ * Reason a line of an import was not imported
+ */
+public final class RowError {
+    private final long line;
+    private final String message;
+
+    RowError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
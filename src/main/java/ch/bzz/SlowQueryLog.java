@@ -0,0 +1,191 @@
+package ch.bzz;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs JDBC statements and Database calls that take at least a threshold, set with db.slowQuery.thresholdMs
+ * Statements are timed through dynamic proxies around the connections and their statements, which only add
+ * work to the execute calls and the batch bookkeeping; with a negative threshold connections are not wrapped at all
+ */
+public class SlowQueryLog {
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final long thresholdNanos;
+
+    /**
+     * Constructor for SlowQueryLog
+     * @param thresholdMs minimum duration that is logged, negative to turn the log off
+     */
+    public SlowQueryLog(long thresholdMs) {
+        this.thresholdNanos = thresholdMs < 0 ? -1 : thresholdMs * 1_000_000;
+    }
+
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Logs a Database call that took at least the threshold, e.g. from a Metrics timer
+     * @param labelValues the operation name
+     * @param nanos duration of the call
+     */
+    public void logCall(String[] labelValues, long nanos) {
+        log.warn("Slow Database call {} took {} ms", String.join(",", labelValues), nanos / 1_000_000);
+    }
+
+    /**
+     * Wraps a connection so that its statements are timed
+     * @param connection connection from the pool
+     * @return the timed connection, or the connection itself if the log is off
+     */
+    public Connection wrap(Connection connection) {
+        if (thresholdNanos < 0) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new TimedConnection(connection));
+    }
+
+    /**
+     * Logs a statement that took at least the threshold
+     * @param sql the statement, may be null for a plain statement without SQL
+     * @param nanos duration of the execute call
+     * @param batchRows rows of the executed batch, 0 if it was no batch
+     */
+    void logStatement(String sql, long nanos, int batchRows) {
+        int parameters = countParameters(sql);
+        if (batchRows > 0) {
+            log.warn("Slow statement took {} ms (batch of {} rows, {} bind parameters each): {}",
+                nanos / 1_000_000, batchRows, parameters, sql);
+        } else {
+            log.warn("Slow statement took {} ms ({} bind parameters): {}", nanos / 1_000_000, parameters, sql);
+        }
+    }
+
+    /**
+     * Counts the ? placeholders outside of string literals, only done for statements that are logged
+     */
+    static int countParameters(String sql) {
+        if (sql == null) {
+            return 0;
+        }
+        int parameters = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                parameters++;
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Calls the target of a proxy; equals and hashCode keep the identity of the proxy, which the target does not know
+     */
+    private static Object invokeTarget(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Connection handler that hands out timed statements; stored procedure calls are not wrapped
+     */
+    private final class TimedConnection implements InvocationHandler {
+        private final Connection connection;
+
+        TimedConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(proxy, connection, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+                        new Class<?>[] {PreparedStatement.class},
+                        new TimedStatement((Connection) proxy, (Statement) result, (String) args[0]));
+                case "createStatement":
+                    return Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+                        new Class<?>[] {Statement.class},
+                        new TimedStatement((Connection) proxy, (Statement) result, null));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    /**
+     * Statement handler timing the execute calls and counting the rows of the current batch
+     */
+    private final class TimedStatement implements InvocationHandler {
+        private final Connection connection;
+        private final Statement statement;
+        /** SQL of a prepared statement, or the last SQL added to the batch of a plain statement */
+        private String sql;
+        private int batchRows;
+
+        TimedStatement(Connection connection, Statement statement, String sql) {
+            this.connection = connection;
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+                String executedSql = args != null && args[0] instanceof String ? (String) args[0] : sql;
+                long start = System.nanoTime();
+                try {
+                    return invokeTarget(proxy, statement, method, args);
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    if (nanos >= thresholdNanos) {
+                        logStatement(executedSql, nanos, batch ? batchRows : 0);
+                    }
+                    if (batch) {
+                        batchRows = 0;
+                    }
+                }
+            }
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+
+            Object result = invokeTarget(proxy, statement, method, args);
+            if (name.equals("addBatch")) {
+                if (args != null) {
+                    sql = (String) args[0];
+                }
+                batchRows++;
+            } else if (name.equals("clearBatch")) {
+                batchRows = 0;
+            }
+            return result;
+        }
+    }
+}
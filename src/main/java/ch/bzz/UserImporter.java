@@ -0,0 +1,248 @@
+package ch.bzz;
+
+import ch.bzz.model.User;
+import ch.bzz.util.PasswordHandler;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports users in bulk from TSV lines: firstname, lastname, dateOfBirth, email, password
+ * Lines are read as a stream, passwords are hashed on the PasswordHandler executor while the previous
+ * batch is written, and every batch is inserted in a single transaction
+ * The import keeps at most MAX_PENDING_HASHES hashes outstanding and waits for them instead of
+ * failing when the shared executor queue is full
+ */
+public class UserImporter {
+    private static final Logger log = LoggerFactory.getLogger(UserImporter.class);
+
+    /** Number of users hashed and written together */
+    static final int BATCH_SIZE = 1000;
+    private static final int COLUMN_COUNT = 5;
+    /** Hashes of one import submitted but not finished, leaves room in the executor queue for logins */
+    static final int MAX_PENDING_HASHES = Math.max(1, Math.min(BATCH_SIZE, PasswordHandler.QUEUE_SIZE / 2));
+
+    /**
+     * Imports users from a TSV file into the database
+     * @param filePath path to the TSV file
+     * @return number of inserted users and the rejected lines
+     * @throws IOException if the file cannot be read
+     */
+    public static ImportSummary importUsers(String filePath) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Path.of(filePath), StandardCharsets.UTF_8)) {
+            return importUsers(reader);
+        }
+    }
+
+    /**
+     * Imports users from TSV lines into the database
+     * @param reader source of the lines, e.g. a request body
+     * @return number of inserted users and the rejected lines
+     * @throws IOException if reading fails
+     */
+    public static ImportSummary importUsers(Reader reader) throws IOException {
+        return importUsers(reader, Database::saveUsers);
+    }
+
+    /**
+     * Imports users from TSV lines
+     * @param reader source of the lines
+     * @param writer inserts one batch and returns the reason per email of the users it did not insert
+     * @return number of inserted users and the rejected lines
+     * @throws IOException if reading fails
+     */
+    static ImportSummary importUsers(Reader reader, Function<List<User>, Map<String, String>> writer) throws IOException {
+        ImportSummary summary = new ImportSummary();
+        Set<String> seenEmails = new HashSet<>();
+        Semaphore pendingHashes = new Semaphore(MAX_PENDING_HASHES);
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<Row> previous = null;
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+        String line;
+        long lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            Row row = parse(line, lineNumber, seenEmails, summary);
+            if (row == null) {
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() == BATCH_SIZE) {
+                hash(batch, pendingHashes);
+                // Write the previous batch while the current one is being hashed
+                if (previous != null) {
+                    write(previous, writer, summary);
+                }
+                previous = batch;
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (previous != null) {
+            write(previous, writer, summary);
+        }
+        if (!batch.isEmpty()) {
+            hash(batch, pendingHashes);
+            write(batch, writer, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Parses one line into a row, recording an error for invalid lines
+     * @return the row or null if the line is empty, a header or invalid
+     */
+    private static Row parse(String line, long lineNumber, Set<String> seenEmails, ImportSummary summary) {
+        if (line.isBlank()) {
+            return null;
+        }
+        String[] columns = line.split("\t", -1);
+        if (lineNumber == 1 && columns[0].trim().equalsIgnoreCase("firstname")) {
+            return null;
+        }
+        if (columns.length != COLUMN_COUNT) {
+            summary.reject(lineNumber, "Expected " + COLUMN_COUNT + " columns but found " + columns.length);
+            return null;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columns[i].trim();
+            if (columns[i].isEmpty()) {
+                summary.reject(lineNumber, "Empty column " + (i + 1));
+                return null;
+            }
+        }
+
+        LocalDate dateOfBirth;
+        try {
+            dateOfBirth = LocalDate.parse(columns[2], DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeParseException e) {
+            summary.reject(lineNumber, "Invalid date of birth: " + columns[2]);
+            return null;
+        }
+        if (!seenEmails.add(columns[3])) {
+            summary.reject(lineNumber, "Duplicate email in input: " + columns[3]);
+            return null;
+        }
+
+        User user = new User();
+        user.setFirstname(columns[0]);
+        user.setLastname(columns[1]);
+        user.setDateOfBirth(dateOfBirth);
+        user.setEmail(columns[3]);
+        return new Row(lineNumber, user, columns[4]);
+    }
+
+    /**
+     * Submits the hashes of a batch, waiting while MAX_PENDING_HASHES are outstanding
+     * A hash the executor rejects because its queue is full of other work is computed on this thread
+     */
+    private static void hash(List<Row> batch, Semaphore pendingHashes) throws IOException {
+        for (Row row : batch) {
+            row.salt = PasswordHandler.generateSalt();
+            try {
+                pendingHashes.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for password hashing");
+            }
+            CompletableFuture<String> hash = PasswordHandler.hashAsync(row.password, row.salt);
+            if (hash.isCompletedExceptionally()) {
+                hash = hashNow(row);
+            }
+            row.hash = hash.whenComplete((result, error) -> pendingHashes.release());
+        }
+    }
+
+    private static CompletableFuture<String> hashNow(Row row) {
+        try {
+            return CompletableFuture.completedFuture(PasswordHandler.hashForStorage(row.password, row.salt));
+        } catch (NoSuchAlgorithmException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static void write(List<Row> batch, Function<List<User>, Map<String, String>> writer, ImportSummary summary) {
+        List<Row> rows = new ArrayList<>(batch.size());
+        List<User> users = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            try {
+                row.user.setPasswordSalt(Base64.getEncoder().encodeToString(row.salt));
+                row.user.setPasswordHash(row.hash.join());
+            } catch (CompletionException e) {
+                summary.reject(row.lineNumber, "Error hashing password: " + e.getCause().getMessage());
+                continue;
+            }
+            rows.add(row);
+            users.add(row.user);
+        }
+        if (users.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> rejected = writer.apply(users);
+        for (Row row : rows) {
+            String reason = rejected.get(row.user.getEmail());
+            if (reason != null) {
+                summary.reject(row.lineNumber, reason);
+            } else {
+                summary.inserted++;
+            }
+        }
+        log.info("{} Benutzer importiert, {} Zeilen abgelehnt.", summary.inserted, summary.errors.size());
+    }
+
+    /**
+     * Parsed line waiting for its password to be hashed
+     */
+    private static final class Row {
+        private final long lineNumber;
+        private final User user;
+        private final String password;
+        private byte[] salt;
+        private CompletableFuture<String> hash;
+
+        Row(long lineNumber, User user, String password) {
+            this.lineNumber = lineNumber;
+            this.user = user;
+            this.password = password;
+        }
+    }
+
+    /**
+     * Outcome of a bulk import: number of inserted users and one error per rejected line
+     */
+    public static final class ImportSummary {
+        private long inserted;
+        private final List<RowError> errors = new ArrayList<>();
+
+        private void reject(long lineNumber, String message) {
+            errors.add(new RowError(lineNumber, message));
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getRejected() {
+            return errors.size();
+        }
+
+        public List<RowError> getErrors() {
+            return errors;
+        }
+    }
+}
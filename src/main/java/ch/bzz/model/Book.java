@@ -1,13 +1,17 @@
 package ch.bzz.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Represents a book in the library system
- * JPA Entity for database synchronization
+ * JPA Entity for database synchronization, kept in the "books" second-level cache region
  */
 @Entity
 @Table(name = "books")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
 public class Book {
 
     @Id
@@ -0,0 +1,69 @@
+package ch.bzz.model;
+
+import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Content fingerprint of a book as last written by a delta import
+ * JPA Entity, lets a delta import skip rows whose isbn, title, author and year did not change
+ */
+@Entity
+@Table(name = "book_fingerprints")
+public class BookFingerprint {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @Id
+    @Column(name = "book_id")
+    private Integer bookId;
+
+    @Column(name = "fingerprint", nullable = false)
+    private Long fingerprint;
+
+    /**
+     * Default constructor required by JPA/Hibernate
+     */
+    public BookFingerprint() {}
+
+    /**
+     * Constructor for BookFingerprint
+     * @param bookId id of the book
+     * @param fingerprint fingerprint of its content
+     */
+    public BookFingerprint(Integer bookId, Long fingerprint) {
+        this.bookId = bookId;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of isbn, title, author and publication year
+     * @param book the book
+     * @return fingerprint of the book's content
+     */
+    public static long of(Book book) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = update(hash, book.getIsbn());
+        hash = update(hash, book.getTitle());
+        hash = update(hash, book.getAuthor());
+        hash = update(hash, book.getPublicationYear() != null ? book.getPublicationYear().toString() : null);
+        return hash;
+    }
+
+    private static long update(long hash, String value) {
+        if (value != null) {
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+        }
+        // Field separator, so that ("ab", "c") and ("a", "bc") differ
+        return (hash ^ (value != null ? 0x1f : 0x00)) * FNV_PRIME;
+    }
+
+    public Integer getBookId() {
+        return bookId;
+    }
+
+    public Long getFingerprint() {
+        return fingerprint;
+    }
+}
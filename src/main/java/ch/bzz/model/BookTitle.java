@@ -0,0 +1,27 @@
+package ch.bzz.model;
+
+/**
+ * Id and title of a book, read with a constructor expression instead of loading the Book entity
+ */
+public class BookTitle {
+    private final Integer id;
+    private final String title;
+
+    /**
+     * Constructor for BookTitle, used by the query SELECT new ch.bzz.model.BookTitle(b.id, b.title)
+     * @param id the book ID
+     * @param title the book title
+     */
+    public BookTitle(Integer id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,43 @@
+package ch.bzz.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Version stamp of the book catalogue, a single row bumped in the transaction of every book write
+ * JPA Entity, lets HTTP validators see writes of other processes such as CLI imports
+ */
+@Entity
+@Table(name = "catalogue_version")
+public class CatalogueVersion {
+    /** Id of the only row */
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Default constructor required by JPA/Hibernate
+     */
+    public CatalogueVersion() {}
+
+    /**
+     * Constructor for CatalogueVersion
+     * @param version initial version stamp
+     */
+    public CatalogueVersion(long version) {
+        this.id = ID;
+        this.version = version;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -1,35 +1,186 @@
 package ch.bzz.util;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utility class for password hashing and salt generation
  * Provides secure password handling for user authentication
+ * SecureRandom and MessageDigest instances are reused per thread; hashAsync runs on a bounded
+ * hashing executor, so CPU-heavy hashing cannot occupy the threads that serve HTTP requests
+ * Stored hashes carry their cost as $sha256$iterations$hash, so raising password.iterations
+ * does not break existing passwords; a plain Base64 hash is a legacy single-round hash
+ * The settings are JVM system properties, e.g. -Dpassword.iterations=20000: hashing must work without
+ * config.properties, whose absence makes Database exit the process
  */
 public class PasswordHandler {
 
+    /** Number of SHA-256 rounds for new hashes, set with password.iterations; 1 is the original single round */
+    public static final int ITERATIONS = Integer.getInteger("password.iterations", 10000);
+    private static final int THREADS = Integer.getInteger("password.threads", Runtime.getRuntime().availableProcessors());
+    /** Number of hashing tasks that may wait for a thread before further ones are rejected */
+    public static final int QUEUE_SIZE = Integer.getInteger("password.queue", 4096);
+    private static final String ALGORITHM = "sha256";
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<>();
+    private static final ExecutorService executor = createExecutor();
+
+    /**
+     * Creates the hashing executor: a fixed number of daemon threads and a bounded queue
+     * Tasks beyond the queue are rejected, so callers get backpressure instead of unbounded latency
+     */
+    private static ExecutorService createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+                Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
     /**
      * Generates a random salt for password hashing
      * @return byte array containing the generated salt
      */
     public static byte[] generateSalt() {
         byte[] salt = new byte[16];
-        new SecureRandom().nextBytes(salt);
+        RANDOM.get().nextBytes(salt);
         return salt;
     }
 
     /**
-     * Hashes a password using SHA-256 with the provided salt
+     * Hashes a password using SHA-256 with the provided salt in a single round
      * @param password the plain text password to hash
      * @param salt the salt to use for hashing
      * @return byte array containing the hashed password
      * @throws NoSuchAlgorithmException if SHA-256 algorithm is not available
      */
     public static byte[] hashPassword(String password, byte[] salt) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        return hashPassword(password, salt, 1);
+    }
+
+    /**
+     * Hashes a password using SHA-256 with the provided salt, stretched over several rounds
+     * The first round is SHA-256(salt, password), every further round hashes the previous result with the salt
+     * @param password the plain text password to hash
+     * @param salt the salt to use for hashing
+     * @param iterations number of rounds, at least 1
+     * @return byte array containing the hashed password
+     * @throws NoSuchAlgorithmException if SHA-256 algorithm is not available
+     */
+    public static byte[] hashPassword(String password, byte[] salt, int iterations) throws NoSuchAlgorithmException {
+        MessageDigest md = digest();
         md.update(salt);
-        return md.digest(password.getBytes());
+        byte[] hash = md.digest(password.getBytes(StandardCharsets.UTF_8));
+        for (int i = 1; i < iterations; i++) {
+            md.update(hash);
+            md.update(salt);
+            hash = md.digest();
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes a password with the configured number of rounds into the form stored in User.passwordHash
+     * @param password the plain text password to hash
+     * @param salt the salt to use for hashing
+     * @return $sha256$iterations$hash
+     * @throws NoSuchAlgorithmException if SHA-256 algorithm is not available
+     */
+    public static String hashForStorage(String password, byte[] salt) throws NoSuchAlgorithmException {
+        return "$" + ALGORITHM + "$" + ITERATIONS + "$"
+            + Base64.getEncoder().encodeToString(hashPassword(password, salt, ITERATIONS));
+    }
+
+    /**
+     * Checks a password against a stored hash in constant time, using the rounds the hash was created with
+     * @param password the plain text password to check
+     * @param salt the salt the hash was created with
+     * @param storedHash the stored hash, either $sha256$iterations$hash or a legacy Base64 single-round hash
+     * @return true if the password matches
+     * @throws NoSuchAlgorithmException if SHA-256 algorithm is not available
+     * @throws IllegalArgumentException if the stored hash has an unknown format
+     */
+    public static boolean verifyPassword(String password, byte[] salt, String storedHash) throws NoSuchAlgorithmException {
+        String[] parts = parse(storedHash);
+        byte[] expected = Base64.getDecoder().decode(parts[2]);
+        return MessageDigest.isEqual(hashPassword(password, salt, Integer.parseInt(parts[1])), expected);
+    }
+
+    /**
+     * Tells whether a stored hash was created with fewer rounds than configured, e.g. a legacy single-round hash
+     * Callers rehash the password with hashForStorage after the next successful verification
+     * @param storedHash the stored hash
+     * @return true if the hash should be replaced
+     */
+    public static boolean needsRehash(String storedHash) {
+        return Integer.parseInt(parse(storedHash)[1]) < ITERATIONS;
+    }
+
+    /**
+     * Splits a stored hash into algorithm, iterations and Base64 hash
+     */
+    private static String[] parse(String storedHash) {
+        if (!storedHash.startsWith("$")) {
+            return new String[] {ALGORITHM, "1", storedHash};
+        }
+        String[] parts = storedHash.substring(1).split("\\$");
+        if (parts.length != 3 || !parts[0].equals(ALGORITHM)) {
+            throw new IllegalArgumentException("Unsupported password hash format");
+        }
+        return parts;
+    }
+
+    /**
+     * Hashes a password on the hashing executor
+     * @param password the plain text password to hash
+     * @param salt the salt to use for hashing
+     * @return future of the stored form of the hash, failed with a RejectedExecutionException if the executor queue is full
+     */
+    public static CompletableFuture<String> hashAsync(String password, byte[] salt) {
+        return submit(() -> hashForStorage(password, salt));
+    }
+
+    private static <T> CompletableFuture<T> submit(HashTask<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.run();
+                } catch (NoSuchAlgorithmException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Hashing work that may fail because SHA-256 is not available
+     */
+    private interface HashTask<T> {
+        T run() throws NoSuchAlgorithmException;
+    }
+
+    private static MessageDigest digest() throws NoSuchAlgorithmException {
+        MessageDigest md = DIGEST.get();
+        if (md == null) {
+            md = MessageDigest.getInstance("SHA-256");
+            DIGEST.set(md);
+        }
+        return md;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for the catalogue cache
+ */
+public class BookCacheTest {
+
+    private static final List<Book> BOOKS = List.of(
+        new Book(1, "978-3-8362-9544-4", "Java ist auch eine Insel", "Christian Ullenboom", 2023),
+        new Book(2, "978-3-658-43573-8", "Grundkurs Java", "Dietmar Abts", 2024));
+
+    @Test
+    void testHitsAfterFirstLoadAndReloadsAfterInvalidate() {
+        BookCache cache = new BookCache(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(0, () -> { loads.incrementAndGet(); return BOOKS; });
+        cache.get(0, () -> { loads.incrementAndGet(); return BOOKS; });
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.invalidate();
+        cache.get(0, () -> { loads.incrementAndGet(); return BOOKS; });
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getVersion());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedEntryWhenFull() {
+        BookCache cache = new BookCache(3);
+        cache.get(1, () -> BOOKS.subList(0, 1));
+        cache.get(2, () -> BOOKS);
+        assertEquals(3, cache.getCachedRows());
+
+        cache.get(0, () -> BOOKS);
+        assertEquals(2, cache.getCachedRows());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void testDoesNotCacheResultLoadedDuringWrite() {
+        BookCache cache = new BookCache(100);
+        cache.get(0, () -> { cache.invalidate(); return BOOKS; });
+        assertEquals(0, cache.getCachedRows());
+    }
+}
@@ -0,0 +1,116 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the streaming book ingest
+ */
+public class BookIngesterTest {
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testIngestsNdjsonAndReportsBadLines() throws Exception {
+        String input = "{\"id\":1,\"isbn\":\"isbn-1\",\"title\":\"Über Bücher\",\"author\":\"Jörg Müller\",\"publicationYear\":2001}\n"
+            + "\n"
+            + "{\"isbn\":\"isbn-2\",\"title\":\"Ohne Id\",\"author\":\"Anna Meier\"}\n"
+            + "{\"id\":3,\"isbn\":\"isbn-3\",\n"
+            + "{\"id\":4,\"isbn\":\"isbn-4\",\"title\":\"\",\"author\":\"Anna Meier\"}\n";
+        List<Book> written = new ArrayList<>();
+
+        BookIngester.IngestSummary summary = BookIngester.ingestNdjson(body(input), books -> {
+            written.addAll(books);
+            return 1;
+        });
+
+        assertEquals(1, summary.getInserted());
+        assertEquals(1, summary.getUpdated());
+        assertEquals(2, summary.getRejected());
+        assertEquals("Über Bücher", written.get(0).getTitle());
+        assertNull(written.get(1).getId());
+        List<Long> lines = new ArrayList<>();
+        for (RowError error : summary.getErrors()) {
+            lines.add(error.getLine());
+        }
+        assertEquals(List.of(4L, 5L), lines);
+    }
+
+    @Test
+    void testWritesInBatchesAndRetriesFailedBatchRowByRow() throws Exception {
+        StringBuilder input = new StringBuilder();
+        int count = BookIngester.BATCH_SIZE * 2 + 1;
+        for (int i = 1; i <= count; i++) {
+            input.append("{\"id\":").append(i).append(",\"isbn\":\"isbn-").append(i)
+                .append("\",\"title\":\"Title\",\"author\":\"Author\"}\n");
+        }
+        int badId = BookIngester.BATCH_SIZE + 5;
+        List<Integer> batchSizes = new ArrayList<>();
+
+        BookIngester.IngestSummary summary = BookIngester.ingestNdjson(body(input.toString()), books -> {
+            batchSizes.add(books.size());
+            for (Book book : books) {
+                if (book.getId() == badId) {
+                    throw new IllegalStateException("constraint violation");
+                }
+            }
+            return 0;
+        });
+
+        assertEquals(BookIngester.BATCH_SIZE + 3, batchSizes.size());
+        assertEquals(count - 1, summary.getInserted());
+        assertEquals(1, summary.getRejected());
+        assertEquals(badId, summary.getErrors().get(0).getLine());
+        assertEquals("Row failed: constraint violation", summary.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void testRejectsOverlongLines() throws Exception {
+        String longTitle = "x".repeat(FileHandler.MAX_LINE_LENGTH * 2);
+        String ndjson = "{\"id\":1,\"isbn\":\"isbn-1\",\"title\":\"" + longTitle + "\",\"author\":\"Author\"}\n"
+            + "{\"id\":2,\"isbn\":\"isbn-2\",\"title\":\"Title\",\"author\":\"Author\"}\n";
+        List<Book> written = new ArrayList<>();
+
+        BookIngester.IngestSummary summary = BookIngester.ingestNdjson(body(ndjson), books -> {
+            written.addAll(books);
+            return 0;
+        });
+
+        assertEquals(1, summary.getInserted());
+        assertEquals(1, summary.getRejected());
+        assertEquals(1L, summary.getErrors().get(0).getLine());
+        assertEquals(2, written.get(0).getId());
+
+        String tsv = "1\tisbn-1\t" + longTitle + "\tAuthor\t2000\n2\tisbn-2\tTitle\tAuthor\t2001\n";
+        summary = BookIngester.ingestTsv(body(tsv), books -> 0);
+        assertEquals(1, summary.getInserted());
+        assertEquals(1, summary.getRejected());
+    }
+
+    @Test
+    void testIngestsTsv() throws Exception {
+        String input = "id\tisbn\ttitle\tauthor\tyear\n"
+            + "1\tisbn-1\tThe Great Gatsby\tF. Scott Fitzgerald\t1925\n"
+            + "x\tisbn-x\tBroken\tAuthor\t2000\n"
+            + "2\tisbn-2\tTo Kill a Mockingbird\tHarper Lee\t1960\n";
+        List<Book> written = new ArrayList<>();
+
+        BookIngester.IngestSummary summary = BookIngester.ingestTsv(body(input), books -> {
+            written.addAll(books);
+            return 0;
+        });
+
+        assertEquals(2, summary.getInserted());
+        assertEquals(1, summary.getRejected());
+        assertEquals("Harper Lee", written.get(1).getAuthor());
+    }
+}
@@ -0,0 +1,74 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Test class for the in-memory primary index
+ */
+public class BookLookupIndexTest {
+
+    @Test
+    void testLookupByIdAndIsbnAfterGrowing() {
+        BookLookupIndex index = new BookLookupIndex();
+        index.ensureLoaded(consumer -> {
+            for (int i = 1; i <= 1000; i++) {
+                consumer.accept(new Book(i * 7, "isbn-" + i, "Title " + i, "Author", 2000));
+            }
+            return 1000L;
+        });
+
+        assertEquals(1000, index.size());
+        assertEquals("Title 42", index.findById(42 * 7).getTitle());
+        assertEquals(500 * 7, index.findByIsbn("isbn-500").getId());
+        assertNull(index.findById(3));
+        assertNull(index.findByIsbn("unknown"));
+    }
+
+    @Test
+    void testUpdateMovesIsbn() {
+        BookLookupIndex index = new BookLookupIndex();
+        index.ensureLoaded(consumer -> {
+            for (int i = 1; i <= 100; i++) {
+                consumer.accept(new Book(i, "isbn-" + i, "Title " + i, "Author", 2000));
+            }
+            return 100L;
+        });
+
+        index.update(List.of(new Book(5, "isbn-new", "Neu", "Author", 2001)));
+
+        assertNull(index.findByIsbn("isbn-5"));
+        assertEquals("Neu", index.findByIsbn("isbn-new").getTitle());
+        assertEquals("Neu", index.findById(5).getTitle());
+        for (int i = 1; i <= 100; i++) {
+            if (i != 5) {
+                assertEquals(i, index.findByIsbn("isbn-" + i).getId());
+            }
+        }
+    }
+
+    @Test
+    void testWriteDuringLoadIsReplayed() throws Exception {
+        BookLookupIndex index = new BookLookupIndex();
+        index.ensureLoaded(consumer -> {
+            consumer.accept(new Book(1, "isbn-1", "Old Title", "Author", 2000));
+            // A writer on another thread must not block on the index while the loader reads
+            Thread writer = new Thread(() -> index.update(List.of(new Book(1, "isbn-1b", "New Title", "Author", 2000))));
+            writer.start();
+            try {
+                writer.join(5000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            assertFalse(writer.isAlive());
+            return 1L;
+        });
+
+        assertEquals("New Title", index.findById(1).getTitle());
+        assertEquals("New Title", index.findByIsbn("isbn-1b").getTitle());
+        assertNull(index.findByIsbn("isbn-1"));
+    }
+}
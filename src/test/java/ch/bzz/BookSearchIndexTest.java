@@ -0,0 +1,67 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Test class for the full-text search index
+ */
+public class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.ensureLoaded(consumer -> {
+            consumer.accept(new Book(1, "978-3-8362-9544-4", "Java ist auch eine Insel", "Christian Ullenboom", 2023));
+            consumer.accept(new Book(2, "978-3-658-43573-8", "Grundkurs Java", "Dietmar Abts", 2024));
+            consumer.accept(new Book(3, "978-3-16-148410-0", "Die Insel", "Jörg Müller", 2001));
+            return 3L;
+        });
+    }
+
+    @Test
+    void testAllTermsMustMatch() {
+        BookSearchIndex.SearchResult result = index.search("java insel", 0, 10);
+        assertEquals(1, result.getTotal());
+        assertEquals(1, result.getBooks().get(0).getId());
+    }
+
+    @Test
+    void testPrefixAndDiacritics() {
+        assertEquals(3, index.search("mull", 0, 10).getBooks().get(0).getId());
+        assertEquals(2, index.search("grund", 0, 10).getBooks().get(0).getId());
+    }
+
+    @Test
+    void testPagingAndUpdate() {
+        BookSearchIndex.SearchResult firstPage = index.search("insel", 0, 1);
+        BookSearchIndex.SearchResult secondPage = index.search("insel", 1, 1);
+        assertEquals(2, firstPage.getTotal());
+        assertNotEquals(firstPage.getBooks().get(0).getId(), secondPage.getBooks().get(0).getId());
+
+        index.update(List.of(new Book(3, "978-3-16-148410-0", "Das Meer", "Jörg Müller", 2001)));
+        assertEquals(1, index.search("insel", 0, 10).getTotal());
+        assertEquals(3, index.search("meer", 0, 10).getBooks().get(0).getId());
+    }
+
+    @Test
+    void testShortPrefixMatchesEveryCompletion() {
+        BookSearchIndex large = new BookSearchIndex();
+        large.ensureLoaded(consumer -> {
+            for (int i = 1; i <= 200; i++) {
+                consumer.accept(new Book(i, "isbn-" + i, "Band" + i, "Autor", 2000));
+            }
+            return 200L;
+        });
+
+        BookSearchIndex.SearchResult result = large.search("band", 0, 10);
+        assertEquals(200, result.getTotal());
+        assertEquals(10, result.getBooks().size());
+    }
+}
@@ -0,0 +1,110 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import ch.bzz.model.BookFingerprint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the incremental book import
+ */
+public class DeltaImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeBooks(int count) throws Exception {
+        StringBuilder content = new StringBuilder("id\tisbn\ttitle\tauthor\tyear\n");
+        for (int i = 1; i <= count; i++) {
+            content.append(i).append("\tisbn-").append(i).append("\tTitle ").append(i)
+                .append("\tAuthor ").append(i).append('\t').append(1900 + i).append('\n');
+        }
+        Path file = tempDir.resolve("books.tsv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void testFingerprintChangesWithContent() {
+        Book book = new Book(1, "isbn-1", "Title", "Author", 2000);
+        Book same = new Book(2, "isbn-1", "Title", "Author", 2000);
+        Book shifted = new Book(1, "isbn-1", "TitleA", "uthor", 2000);
+        Book otherYear = new Book(1, "isbn-1", "Title", "Author", 2001);
+
+        assertEquals(BookFingerprint.of(book), BookFingerprint.of(same));
+        assertNotEquals(BookFingerprint.of(book), BookFingerprint.of(shifted));
+        assertNotEquals(BookFingerprint.of(book), BookFingerprint.of(otherYear));
+    }
+
+    @Test
+    void testCountsWrittenAndUnchangedRows() throws Exception {
+        Path file = writeBooks(50);
+
+        DeltaImporter.DeltaSummary summary = DeltaImporter.importBooks(file, 256,
+            books -> (int) books.stream().filter(book -> book.getId() % 5 == 0).count());
+
+        assertEquals(10, summary.getWritten());
+        assertEquals(40, summary.getUnchanged());
+        assertFalse(Files.exists(DeltaImporter.checkpointFile(file)));
+    }
+
+    @Test
+    void testResumesAfterLastCommittedSegment() throws Exception {
+        Path file = writeBooks(200);
+        List<Integer> committed = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> DeltaImporter.importBooks(file, 1024, books -> {
+            if (committed.size() > 50) {
+                throw new IllegalStateException("database unavailable");
+            }
+            books.forEach(book -> committed.add(book.getId()));
+            return books.size();
+        }));
+        assertTrue(Files.exists(DeltaImporter.checkpointFile(file)));
+
+        List<Integer> resumed = new ArrayList<>();
+        DeltaImporter.DeltaSummary summary = DeltaImporter.importBooks(file, 1024, books -> {
+            books.forEach(book -> resumed.add(book.getId()));
+            return books.size();
+        });
+
+        assertEquals(committed.get(committed.size() - 1) + 1, resumed.get(0));
+        assertEquals(200, committed.size() + resumed.size());
+        assertEquals(200, summary.getWritten());
+        assertFalse(Files.exists(DeltaImporter.checkpointFile(file)));
+    }
+
+    @Test
+    void testRejectsRowsWithoutId() throws Exception {
+        Path file = writeBooks(3);
+        Files.writeString(file, "\tisbn-4\tTitle 4\tAuthor 4\t1904\n", StandardCharsets.UTF_8,
+            java.nio.file.StandardOpenOption.APPEND);
+        List<Book> written = new ArrayList<>();
+
+        DeltaImporter.DeltaSummary summary = DeltaImporter.importBooks(file, 1024, books -> {
+            written.addAll(books);
+            return books.size();
+        });
+
+        assertEquals(3, summary.getWritten());
+        assertEquals(1, summary.getRejected());
+        assertTrue(written.stream().allMatch(book -> book.getId() != null));
+    }
+
+    @Test
+    void testIgnoresCheckpointOfChangedFile() throws Exception {
+        Path file = writeBooks(20);
+        Files.writeString(DeltaImporter.checkpointFile(file), "file=1/1\noffset=100\nwritten=5\n");
+
+        DeltaImporter.DeltaSummary summary = DeltaImporter.importBooks(file, 256, List::size);
+
+        assertEquals(20, summary.getWritten());
+    }
+}
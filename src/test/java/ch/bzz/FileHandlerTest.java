@@ -0,0 +1,109 @@
+package ch.bzz;
+
+import ch.bzz.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the TSV parsing in FileHandler
+ */
+public class FileHandlerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeFile(String content) throws Exception {
+        Path file = tempDir.resolve("books.tsv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void testReadBooksSkipsHeader() throws Exception {
+        Path file = writeFile("id\tisbn\ttitle\tauthor\tyear\n"
+            + "1\t978-0-7432-7356-5\tThe Great Gatsby\tF. Scott Fitzgerald\t1925\n"
+            + "2\t978-0-06-112008-4\tTo Kill a Mockingbird\tHarper Lee\t1960\n");
+
+        List<Book> books = FileHandler.readBooksFromTSV(file.toString());
+
+        assertEquals(2, books.size());
+        assertEquals(1, books.get(0).getId());
+        assertEquals("The Great Gatsby", books.get(0).getTitle());
+        assertEquals("Harper Lee", books.get(1).getAuthor());
+        assertEquals(1960, books.get(1).getPublicationYear());
+    }
+
+    @Test
+    void testReadBooksWithoutHeaderAndCrlf() throws Exception {
+        Path file = writeFile("7\t978-3-16-148410-0\tÜber Bücher\tJörg Müller\t2001\r\n\r\n"
+            + "8\t978-3-16-148411-7\tZweites Buch\tAnna Meier\t2002");
+
+        List<Book> books = FileHandler.readBooksFromTSV(file.toString());
+
+        assertEquals(2, books.size());
+        assertEquals("Über Bücher", books.get(0).getTitle());
+        assertEquals("Jörg Müller", books.get(0).getAuthor());
+        assertEquals(2002, books.get(1).getPublicationYear());
+    }
+
+    @Test
+    void testStreamBooksInChunksAndCountsRejectedLines() throws Exception {
+        StringBuilder content = new StringBuilder("id\tisbn\ttitle\tauthor\tyear\n");
+        for (int i = 1; i <= 25; i++) {
+            content.append(i).append("\tisbn-").append(i).append("\tTitle ").append(i)
+                .append("\tAuthor\t").append(1900 + i).append('\n');
+        }
+        content.append("x\tisbn-x\tBroken\tAuthor\t2000\n");
+        content.append("only\ttwo\n");
+        Path file = writeFile(content.toString());
+
+        List<Integer> chunkSizes = new ArrayList<>();
+        FileHandler.ParseResult result = FileHandler.streamBooksFromTSV(
+            file.toString(), 10, chunk -> chunkSizes.add(chunk.size()));
+
+        assertEquals(25, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of(10, 10, 5), chunkSizes);
+    }
+
+    @Test
+    void testWrittenRowsCanBeReadBack() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileHandler.TsvWriter writer = new FileHandler.TsvWriter(Channels.newChannel(out));
+        writer.writeRow(new Object[] {"id", "isbn", "title", "author", "year"});
+        writer.writeRow(new Object[] {7, "978-3-16-148410-0", "Über\tBücher", "Jörg Müller", 2001});
+        writer.writeRow(new Object[] {-8, "isbn-8", "Line\nBreak \uD83D\uDCDA", "Anna Meier", 0});
+        writer.writeRow(new Object[] {9, "isbn-9", "Undated", "Unknown", null});
+        writer.flush();
+
+        List<Book> books = new ArrayList<>();
+        byte[] data = out.toByteArray();
+        FileHandler.ParseResult result = FileHandler.parseBooks(Channels.newChannel(new ByteArrayInputStream(data)),
+            data.length, true, FileHandler.DEFAULT_CHUNK_SIZE, books::addAll);
+
+        assertEquals(3, result.getAccepted());
+        assertEquals(0, result.getRejected());
+        assertEquals("Über Bücher", books.get(0).getTitle());
+        assertEquals("Jörg Müller", books.get(0).getAuthor());
+        assertEquals(-8, books.get(1).getId());
+        assertEquals("Line Break \uD83D\uDCDA", books.get(1).getTitle());
+        assertEquals(0, books.get(1).getPublicationYear());
+        assertNull(books.get(2).getPublicationYear());
+    }
+
+    @Test
+    void testMissingFileReturnsEmptyList() {
+        List<Book> books = FileHandler.readBooksFromTSV(tempDir.resolve("missing.tsv").toString());
+        assertTrue(books.isEmpty());
+    }
+}
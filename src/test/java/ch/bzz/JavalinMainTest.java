@@ -20,6 +20,9 @@ public class JavalinMainTest {
         // Create Javalin app with the same configuration as JavalinMain
         app = Javalin.create();
         app.get("/books", JavalinMain::getBooks);
+        app.get("/books/export", JavalinMain::exportBooks);
+        app.post("/books", JavalinMain::ingestBooks);
+        app.get("/books/{id}", JavalinMain::getBookById);
     }
     
     @AfterEach
@@ -82,4 +85,151 @@ public class JavalinMainTest {
             assertEquals("application/json", response.header("Content-Type"));
         });
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testGetBooksPageWithCursor() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books?after=0&limit=1");
+            assertEquals(200, response.code());
+            assertEquals("application/json", response.header("Content-Type"));
+            
+            String responseBody = response.body().string();
+            assertTrue(responseBody.contains("\"books\""));
+            assertTrue(responseBody.contains("\"next\""));
+        });
+    }
+    
+    @Test
+    void testGetBooksPageWithInvalidCursor() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books?after=abc");
+            assertEquals(400, response.code());
+            assertTrue(response.body().string().contains("Invalid after or limit parameter"));
+        });
+    }
+    
+    @Test
+    void testStreamBooks() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books?stream=true&limit=2");
+            assertEquals(200, response.code());
+            assertEquals("application/json", response.header("Content-Type"));
+            
+            String responseBody = response.body().string();
+            assertTrue(responseBody.startsWith("["));
+            assertTrue(responseBody.endsWith("]"));
+        });
+    }
+    
+    @Test
+    void testGetBookByUnknownId() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books/-1");
+            assertEquals(404, response.code());
+            assertTrue(response.body().string().contains("Book not found"));
+        });
+    }
+    
+    @Test
+    void testGetBookByInvalidId() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books/abc");
+            assertEquals(400, response.code());
+        });
+    }
+    
+    @Test
+    void testVirtualThreadServerServesBooks() {
+        // Falls back to platform threads on JVMs without virtual threads
+        Javalin virtualApp = JavalinMain.createApp(true);
+        JavalinTest.test(virtualApp, (server, client) -> {
+            var response = client.get("/books?stream=true&limit=2");
+            assertEquals(200, response.code());
+            assertTrue(response.body().string().startsWith("["));
+        });
+    }
+    
+    @Test
+    void testConditionalGetReturnsNotModified() {
+        JavalinTest.test(app, (server, client) -> {
+            var first = client.get("/books?limit=2");
+            assertEquals(200, first.code());
+            String etag = first.header("ETag");
+            assertNotNull(etag);
+            assertTrue(etag.startsWith("W/"));
+            
+            var second = client.get("/books?limit=2", request -> request.header("If-None-Match", etag));
+            assertEquals(304, second.code());
+            assertEquals("", second.body().string());
+            
+            var otherLimit = client.get("/books?limit=3", request -> request.header("If-None-Match", etag));
+            assertEquals(200, otherLimit.code());
+            assertNotEquals(etag, otherLimit.header("ETag"));
+        });
+    }
+    
+    @Test
+    void testGetBooksAsCbor() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books?limit=2", request -> request.header("Accept", "application/cbor"));
+            assertEquals(200, response.code());
+            assertEquals("application/cbor", response.header("Content-Type"));
+            
+            Book[] books = ResponseFormat.CBOR.getMapper().readValue(response.body().bytes(), Book[].class);
+            assertTrue(books.length <= 2);
+        });
+    }
+    
+    @Test
+    void testAcceptHonoursQualityValues() {
+        assertEquals(ResponseFormat.JSON, ResponseFormat.forAccept(null));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.forAccept("application/cbor;q=0"));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.forAccept("application/cbor;q=0.5, application/json"));
+        assertEquals(ResponseFormat.SMILE,
+            ResponseFormat.forAccept("application/json;q=0.8, application/x-jackson-smile"));
+        assertEquals(ResponseFormat.CBOR, ResponseFormat.forAccept("application/cbor, application/json"));
+    }
+    
+    @Test
+    void testGetBooksWithFields() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books?fields=id,title&limit=2");
+            assertEquals(200, response.code());
+            assertEquals("application/json", response.header("Content-Type"));
+            
+            String responseBody = response.body().string();
+            assertTrue(responseBody.startsWith("["));
+            assertFalse(responseBody.contains("\"isbn\""));
+            assertFalse(responseBody.contains("\"author\""));
+        });
+    }
+    
+    @Test
+    void testGetBooksWithUnknownField() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books?fields=id,password");
+            assertEquals(400, response.code());
+            assertTrue(response.body().string().contains("Invalid fields parameter"));
+        });
+    }
+    
+    @Test
+    void testExportBooksAsTsv() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get("/books/export");
+            assertEquals(200, response.code());
+            assertTrue(response.header("Content-Type").startsWith("text/tab-separated-values"));
+            assertTrue(response.body().string().startsWith("id\tisbn\ttitle\tauthor\tyear\n"));
+        });
+    }
+    
+    @Test
+    void testIngestBooksRejectsUnsupportedContentType() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.request("/books", builder -> builder.post(
+                okhttp3.RequestBody.create("<books/>", okhttp3.MediaType.get("application/xml"))));
+            assertEquals(415, response.code());
+            assertTrue(response.body().string().contains("Unsupported content type"));
+        });
+    }
+}
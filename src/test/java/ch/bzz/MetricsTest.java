@@ -0,0 +1,80 @@
+package ch.bzz;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the latency histograms and their Prometheus output
+ */
+public class MetricsTest {
+
+    @Test
+    void testQuantilesAreWithinOneBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050 * 1_000_000L, histogram.getSumNanos());
+        assertEquals(50_000_000, histogram.getQuantileNanos(0.5), 50_000_000 * 0.25);
+        assertEquals(99_000_000, histogram.getQuantileNanos(0.99), 99_000_000 * 0.25);
+        assertTrue(histogram.getQuantileNanos(0.5) <= histogram.getQuantileNanos(0.95));
+    }
+
+    @Test
+    void testEmptyHistogramReportsZero() {
+        assertEquals(0, new LatencyHistogram().getQuantileNanos(0.99));
+    }
+
+    @Test
+    void testWritesSummaryPerLabelCombination() {
+        Metrics metrics = new Metrics("test_seconds", "Test durations", "route");
+        metrics.record(2_000_000, "/books");
+        metrics.record(4_000_000, "/books");
+        metrics.record(1_000_000, "/books/{id}");
+
+        StringBuilder out = new StringBuilder();
+        metrics.writeTo(out);
+        String text = out.toString();
+
+        assertTrue(text.contains("# TYPE test_seconds summary"));
+        assertTrue(text.contains("test_seconds{route=\"/books\",quantile=\"0.99\"}"));
+        assertTrue(text.contains("test_seconds_count{route=\"/books\"} 2"));
+        assertTrue(text.contains("test_seconds_count{route=\"/books/{id}\"} 1"));
+        assertTrue(text.contains("test_seconds_sum{route=\"/books\"} 0.006"));
+    }
+
+    @Test
+    void testTimerRecordsOnClose() {
+        Metrics metrics = new Metrics("test_seconds", "Test durations", "operation");
+        try (Metrics.Timer timer = metrics.start("saveBooks")) {
+            assertEquals(0, metrics.getHistogram("saveBooks").getCount());
+        }
+        assertEquals(1, metrics.getHistogram("saveBooks").getCount());
+    }
+
+    @Test
+    void testRejectsWrongNumberOfLabelValues() {
+        Metrics metrics = new Metrics("test_seconds", "Test durations", "method", "route");
+        assertThrows(IllegalArgumentException.class, () -> metrics.record(1, "GET"));
+    }
+
+    @Test
+    void testReportsOnlySlowObservations() {
+        List<String> slow = new ArrayList<>();
+        Metrics metrics = new Metrics("test_seconds", "Test durations", "operation")
+            .reportSlowerThan(5_000_000, (labels, nanos) -> slow.add(labels[0] + "=" + nanos));
+
+        metrics.record(1_000_000, "fast");
+        metrics.record(5_000_000, "slow");
+        try (Metrics.Timer timer = metrics.start("timed")) {
+            // finishes well below the threshold
+        }
+
+        assertEquals(List.of("slow=5000000"), slow);
+    }
+}
@@ -0,0 +1,102 @@
+package ch.bzz;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for file resolution, segmenting and the ordered parallel import in ParallelImporter
+ */
+public class ParallelImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSplitAtLineBoundaries() throws Exception {
+        Path file = tempDir.resolve("books.tsv");
+        Files.writeString(file, "aaaa\nbbbb\ncccc\ndd");
+
+        List<long[]> ranges = ParallelImporter.splitAtLineBoundaries(file, 6);
+
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[] {0, 10}, ranges.get(0));
+        assertArrayEquals(new long[] {10, 17}, ranges.get(1));
+    }
+
+    @Test
+    void testResolveDirectoryAndGlob() throws Exception {
+        Files.writeString(tempDir.resolve("b.tsv"), "");
+        Files.writeString(tempDir.resolve("a.tsv"), "");
+        Files.writeString(tempDir.resolve("notes.txt"), "");
+
+        List<Path> fromDirectory = ParallelImporter.resolveFiles(tempDir.toString());
+        assertEquals(List.of(tempDir.resolve("a.tsv"), tempDir.resolve("b.tsv")), fromDirectory);
+
+        List<Path> fromGlob = ParallelImporter.resolveFiles(tempDir.resolve("*.t?t").toString());
+        assertEquals(List.of(tempDir.resolve("notes.txt")), fromGlob);
+    }
+
+    @Test
+    void testImportsSegmentsInFileAndLineOrder() throws Exception {
+        StringBuilder first = new StringBuilder("id\tisbn\ttitle\tauthor\tyear\n");
+        StringBuilder second = new StringBuilder();
+        for (int i = 1; i <= 200; i++) {
+            StringBuilder file = i <= 100 ? first : second;
+            file.append(i).append("\tisbn-").append(i).append("\tTitle ").append(i).append("\tAuthor\t2000\n");
+        }
+        second.append("broken line\n");
+        Files.writeString(tempDir.resolve("a.tsv"), first);
+        Files.writeString(tempDir.resolve("b.tsv"), second);
+        List<Integer> ids = new ArrayList<>();
+
+        List<ParallelImporter.FileSummary> summaries = ParallelImporter.importBooks(tempDir.toString(), 200, 4, 3,
+            books -> {
+                books.forEach(book -> ids.add(book.getId()));
+                return books.size();
+            });
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, ids);
+        assertEquals(2, summaries.size());
+        assertEquals(100, summaries.get(0).getAccepted());
+        assertEquals(100, summaries.get(1).getAccepted());
+        assertEquals(1, summaries.get(1).getRejected());
+        assertEquals(100, summaries.get(1).getWritten());
+        assertEquals(0, summaries.get(1).getWriteFailed());
+    }
+
+    @Test
+    void testCountsOnlyCommittedBooksAsWritten() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            content.append(i).append("\tisbn-").append(i).append("\tTitle ").append(i).append("\tAuthor\t2000\n");
+        }
+        Files.writeString(tempDir.resolve("books.tsv"), content);
+
+        // The writer commits nothing of the first segment and everything of the others
+        List<ParallelImporter.FileSummary> summaries = ParallelImporter.importBooks(tempDir.toString(), 200, 2, 2,
+            books -> books.get(0).getId() == 1 ? 0 : books.size());
+
+        ParallelImporter.FileSummary summary = summaries.get(0);
+        assertEquals(100, summary.getAccepted());
+        assertTrue(summary.getWriteFailed() > 0);
+        assertEquals(100, summary.getWritten() + summary.getWriteFailed());
+    }
+
+    @Test
+    void testWindowFollowsMemoryBudget() {
+        long segment = ParallelImporter.SEGMENT_SIZE;
+        assertEquals(1, ParallelImporter.window(0, segment, 8));
+        assertEquals(2, ParallelImporter.window(segment * 12, segment, 8));
+        assertEquals(16, ParallelImporter.window(Long.MAX_VALUE / 16, segment, 8));
+    }
+}
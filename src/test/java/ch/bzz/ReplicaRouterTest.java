@@ -0,0 +1,104 @@
+package ch.bzz;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Test class for the read/write routing, with two SQLite files as primary and replica
+ */
+public class ReplicaRouterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaRouter router;
+
+    private HikariDataSource createPool(String name) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl("jdbc:sqlite:" + tempDir.resolve(name + ".db"));
+        config.setAutoCommit(false);
+        config.setMaximumPoolSize(2);
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    private static void createBooksTable(HikariDataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE books (id INTEGER PRIMARY KEY, title TEXT)");
+            connection.commit();
+        }
+    }
+
+    private String databaseOf(Connection connection) throws Exception {
+        String url = connection.getMetaData().getURL();
+        return url.substring(url.lastIndexOf('/') + 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (router != null) {
+            router.close();
+        }
+        if (primary != null) {
+            primary.close();
+        }
+    }
+
+    @Test
+    void testRoutesReadsToReplicaAndWritesToPrimary() throws Exception {
+        primary = createPool("primary");
+        replica = createPool("replica");
+        createBooksTable(primary);
+        createBooksTable(replica);
+        router = new ReplicaRouter(primary, List.of(replica), new SlowQueryLog(-1),
+            "SELECT 1 FROM books WHERE 1 = 0", 60_000);
+
+        try (Connection connection = router.getConnection()) {
+            assertEquals("primary.db", databaseOf(connection));
+        }
+        try (ReplicaRouter.Route route = ReplicaRouter.readFromReplica()) {
+            try (Connection connection = router.getConnection()) {
+                assertEquals("replica.db", databaseOf(connection));
+            }
+        }
+        try (Connection connection = router.getConnection()) {
+            assertEquals("primary.db", databaseOf(connection));
+        }
+    }
+
+    @Test
+    void testFallsBackToPrimaryWhileReplicaIsUnhealthy() throws Exception {
+        primary = createPool("primary");
+        replica = createPool("replica");
+        createBooksTable(primary);
+        router = new ReplicaRouter(primary, List.of(replica), new SlowQueryLog(-1),
+            "SELECT 1 FROM books WHERE 1 = 0", 60_000);
+
+        assertEquals(false, router.getReplicaStatus().get(0).get("healthy"));
+        try (ReplicaRouter.Route route = ReplicaRouter.readFromReplica();
+             Connection connection = router.getConnection()) {
+            assertEquals("primary.db", databaseOf(connection));
+        }
+
+        createBooksTable(replica);
+        router.checkReplicas();
+
+        assertEquals(true, router.getReplicaStatus().get(0).get("healthy"));
+        try (ReplicaRouter.Route route = ReplicaRouter.readFromReplica();
+             Connection connection = router.getConnection()) {
+            assertEquals("replica.db", databaseOf(connection));
+        }
+    }
+}
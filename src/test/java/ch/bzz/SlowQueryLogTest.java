@@ -0,0 +1,103 @@
+package ch.bzz;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * Test class for the slow-query log, with a stub connection instead of a database
+ */
+public class SlowQueryLogTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SlowQueryLog.class);
+    private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        events.start();
+        logger.addAppender(events);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(events);
+    }
+
+    /**
+     * Connection whose prepared statements do nothing but sleep in executeBatch
+     */
+    private static Connection stubConnection() {
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                if (method.getName().equals("executeBatch")) {
+                    Thread.sleep(20);
+                    return new int[0];
+                }
+                return null;
+            });
+        return (Connection) Proxy.newProxyInstance(SlowQueryLogTest.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, (proxy, method, args) -> statement);
+    }
+
+    @Test
+    void testLogsSlowBatchWithBindParameterCount() throws Exception {
+        Connection connection = new SlowQueryLog(10).wrap(stubConnection());
+
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO books (id, title) VALUES (?, ?)")) {
+            for (int i = 0; i < 3; i++) {
+                statement.setInt(1, i);
+                statement.setString(2, "Title");
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        assertEquals(1, events.list.size());
+        String message = events.list.get(0).getFormattedMessage();
+        assertTrue(message.contains("batch of 3 rows, 2 bind parameters each"));
+        assertTrue(message.endsWith("INSERT INTO books (id, title) VALUES (?, ?)"));
+    }
+
+    @Test
+    void testIgnoresStatementsBelowThreshold() throws Exception {
+        Connection connection = new SlowQueryLog(1_000).wrap(stubConnection());
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            statement.executeBatch();
+            assertEquals(statement, statement);
+            assertNotEquals(statement, connection.prepareStatement("SELECT 1"));
+        }
+
+        assertTrue(events.list.isEmpty());
+    }
+
+    @Test
+    void testCountsOnlyPlaceholdersOutsideLiterals() {
+        assertEquals(2, SlowQueryLog.countParameters("UPDATE books SET title = ? WHERE id = ? AND isbn <> '?'"));
+        assertEquals(0, SlowQueryLog.countParameters(null));
+    }
+
+    @Test
+    void testStatementsReturnTheWrappedConnection() throws Exception {
+        Connection connection = new SlowQueryLog(1_000).wrap(stubConnection());
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            assertSame(connection, statement.getConnection());
+        }
+    }
+
+    @Test
+    void testNegativeThresholdLeavesConnectionUnwrapped() {
+        Connection connection = stubConnection();
+        assertSame(connection, new SlowQueryLog(-1).wrap(connection));
+    }
+}
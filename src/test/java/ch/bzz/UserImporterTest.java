@@ -0,0 +1,65 @@
+package ch.bzz;
+
+import ch.bzz.model.User;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for the bulk user import
+ */
+public class UserImporterTest {
+
+    @Test
+    void testImportsValidLinesAndReportsBadOnes() throws Exception {
+        String input = "firstname\tlastname\tdate_of_birth\temail\tpassword\n"
+            + "Max\tMustermann\t1990-05-21\tmax@example.com\tgeheim123\n"
+            + "Erika\tMuster\t21.05.1990\terika@example.com\tgeheim123\n"
+            + "Anna\tMuster\t1985-01-01\tmax@example.com\tgeheim123\n"
+            + "Hans\tMeier\t1970-12-31\n"
+            + "Taken\tUser\t1980-02-02\ttaken@example.com\tgeheim123\n"
+            + "Long\tName\t1980-02-02\tlong@example.com\tgeheim123\n";
+        List<User> written = new ArrayList<>();
+
+        UserImporter.ImportSummary summary = UserImporter.importUsers(new StringReader(input), users -> {
+            written.addAll(users);
+            return Map.of("taken@example.com", "Email already exists: taken@example.com",
+                "long@example.com", "Insert failed: value too long");
+        });
+
+        assertEquals(1, summary.getInserted());
+        assertEquals(5, summary.getRejected());
+        assertEquals(3, written.size());
+        assertNotNull(written.get(0).getPasswordHash());
+        assertNotNull(written.get(0).getPasswordSalt());
+
+        List<Long> lines = new ArrayList<>();
+        for (RowError error : summary.getErrors()) {
+            lines.add(error.getLine());
+        }
+        assertTrue(lines.containsAll(List.of(3L, 4L, 5L, 6L, 7L)));
+        assertEquals("Insert failed: value too long", summary.getErrors().get(4).getMessage());
+    }
+
+    @Test
+    void testWritesInBatches() throws Exception {
+        StringBuilder input = new StringBuilder();
+        int count = UserImporter.BATCH_SIZE * 2 + 1;
+        for (int i = 0; i < count; i++) {
+            input.append("User\t").append(i).append("\t2000-01-01\tuser").append(i).append("@example.com\tpw\n");
+        }
+        List<Integer> batchSizes = new ArrayList<>();
+
+        UserImporter.ImportSummary summary = UserImporter.importUsers(new StringReader(input.toString()), users -> {
+            batchSizes.add(users.size());
+            return Map.of();
+        });
+
+        assertEquals(count, summary.getInserted());
+        assertEquals(List.of(UserImporter.BATCH_SIZE, UserImporter.BATCH_SIZE, 1), batchSizes);
+    }
+}
@@ -67,6 +67,40 @@ public class UserTest {
         assertFalse(java.util.Arrays.equals(hash, differentHash));
     }
     
+    @Test
+    void testSingleRoundMatchesPlainSha256() throws Exception {
+        byte[] salt = PasswordHandler.generateSalt();
+        java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-256");
+        md.update(salt);
+        byte[] expected = md.digest("geheim123".getBytes());
+        
+        assertArrayEquals(expected, PasswordHandler.hashPassword("geheim123", salt));
+        assertArrayEquals(expected, PasswordHandler.hashPassword("geheim123", salt, 1));
+        assertFalse(java.util.Arrays.equals(expected, PasswordHandler.hashPassword("geheim123", salt, 2)));
+    }
+    
+    @Test
+    void testHashAsyncStoresRoundsAndVerifies() throws Exception {
+        byte[] salt = PasswordHandler.generateSalt();
+        String hash = PasswordHandler.hashAsync("geheim123", salt).get();
+        
+        assertEquals(PasswordHandler.hashForStorage("geheim123", salt), hash);
+        assertTrue(hash.startsWith("$sha256$" + PasswordHandler.ITERATIONS + "$"));
+        assertTrue(PasswordHandler.verifyPassword("geheim123", salt, hash));
+        assertFalse(PasswordHandler.verifyPassword("falsch", salt, hash));
+        assertFalse(PasswordHandler.needsRehash(hash));
+    }
+    
+    @Test
+    void testLegacySingleRoundHashStillVerifies() throws Exception {
+        byte[] salt = PasswordHandler.generateSalt();
+        String legacy = Base64.getEncoder().encodeToString(PasswordHandler.hashPassword("geheim123", salt, 1));
+        
+        assertTrue(PasswordHandler.verifyPassword("geheim123", salt, legacy));
+        assertFalse(PasswordHandler.verifyPassword("falsch", salt, legacy));
+        assertEquals(PasswordHandler.ITERATIONS > 1, PasswordHandler.needsRehash(legacy));
+    }
+    
     @Test
     void testBase64Encoding() throws Exception {
         // Test Base64 encoding of salt and hash